@@ -0,0 +1,251 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codec for Java array properties, including arrays of primitives. Stored as BSON array. Arrays of primitives are
+ * read into primitive buffers presized by the last decoded array, numbers of other BSON types are accepted when they
+ * fit the component type exactly.
+ */
+class ArrayCodec implements Codec<Object> {
+    private final Class<?> componentType;
+    private final Codec<Object> elementCodec;
+    private final Class<Object> encoderClass;
+    private volatile int sizeHint;
+
+    ArrayCodec(Class<?> componentType, Codec<?> elementCodec) {
+        this.componentType = componentType;
+        this.elementCodec = (Codec<Object>) elementCodec;
+        this.encoderClass = (Class<Object>) Array.newInstance(componentType, 0).getClass();
+    }
+
+    @Override
+    public Object decode(BsonReader reader, DecoderContext decoderContext) {
+        if (componentType.isPrimitive()) {
+            return decodePrimitives(reader);
+        }
+
+        List<Object> elements = new ArrayList<>(sizeHint);
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                elements.add(null);
+            } else {
+                elements.add(elementCodec.decode(reader, decoderContext));
+            }
+        }
+        reader.readEndArray();
+
+        sizeHint = elements.size();
+        return elements.toArray((Object[]) Array.newInstance(componentType, elements.size()));
+    }
+
+    private Object decodePrimitives(BsonReader reader) {
+        reader.readStartArray();
+        Object array;
+        if (componentType == double.class || componentType == float.class) {
+            array = decodeFloating(reader);
+        } else if (componentType == boolean.class) {
+            array = decodeBooleans(reader);
+        } else if (componentType == char.class) {
+            array = decodeChars(reader);
+        } else {
+            array = decodeIntegral(reader);
+        }
+        reader.readEndArray();
+
+        sizeHint = Array.getLength(array);
+        return array;
+    }
+
+    private Object decodeIntegral(BsonReader reader) {
+        long min;
+        long max;
+        if (componentType == int.class) {
+            min = Integer.MIN_VALUE;
+            max = Integer.MAX_VALUE;
+        } else if (componentType == short.class) {
+            min = Short.MIN_VALUE;
+            max = Short.MAX_VALUE;
+        } else if (componentType == byte.class) {
+            min = Byte.MIN_VALUE;
+            max = Byte.MAX_VALUE;
+        } else {
+            min = Long.MIN_VALUE;
+            max = Long.MAX_VALUE;
+        }
+
+        long[] values = new long[Math.max(sizeHint, 8)];
+        int size = 0;
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            long value = readLong(reader);
+            if (value < min || value > max) {
+                throw new MongoMapperException("Value " + value + " does not fit array of " + componentType.getName() + ".");
+            }
+            values[size++] = value;
+        }
+
+        if (componentType == long.class) {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        } else if (componentType == int.class) {
+            int[] ints = new int[size];
+            for (int i = 0; i < size; i++) {
+                ints[i] = (int) values[i];
+            }
+            return ints;
+        } else if (componentType == short.class) {
+            short[] shorts = new short[size];
+            for (int i = 0; i < size; i++) {
+                shorts[i] = (short) values[i];
+            }
+            return shorts;
+        }
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private Object decodeFloating(BsonReader reader) {
+        double[] values = new double[Math.max(sizeHint, 8)];
+        int size = 0;
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = readDouble(reader);
+        }
+
+        if (componentType == double.class) {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+        float[] floats = new float[size];
+        for (int i = 0; i < size; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+
+    private boolean[] decodeBooleans(BsonReader reader) {
+        boolean[] values = new boolean[Math.max(sizeHint, 8)];
+        int size = 0;
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            checkType(reader, BsonType.BOOLEAN);
+            values[size++] = reader.readBoolean();
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private char[] decodeChars(BsonReader reader) {
+        char[] values = new char[Math.max(sizeHint, 8)];
+        int size = 0;
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            checkType(reader, BsonType.STRING);
+            String value = reader.readString();
+            if (value.length() != 1) {
+                throw new MongoMapperException("String \"" + value + "\" does not fit array of char.");
+            }
+            values[size++] = value.charAt(0);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private long readLong(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case DOUBLE:
+                double value = reader.readDouble();
+                if (value != Math.rint(value) || value < Long.MIN_VALUE || value >= 0x1p63) {
+                    throw new MongoMapperException("Value " + value + " does not fit array of " + componentType.getName() + ".");
+                }
+                return (long) value;
+            default:
+                throw unexpectedType(reader);
+        }
+    }
+
+    private double readDouble(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                throw unexpectedType(reader);
+        }
+    }
+
+    private void checkType(BsonReader reader, BsonType expected) {
+        if (reader.getCurrentBsonType() != expected) {
+            throw unexpectedType(reader);
+        }
+    }
+
+    private MongoMapperException unexpectedType(BsonReader reader) {
+        return new MongoMapperException("Array of " + componentType.getName() + " cannot hold " + reader.getCurrentBsonType() + " element.");
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Object array, EncoderContext encoderContext) {
+        writer.writeStartArray();
+        if (array instanceof int[]) {
+            for (int value : (int[]) array) {
+                writer.writeInt32(value);
+            }
+        } else if (array instanceof long[]) {
+            for (long value : (long[]) array) {
+                writer.writeInt64(value);
+            }
+        } else if (array instanceof double[]) {
+            for (double value : (double[]) array) {
+                writer.writeDouble(value);
+            }
+        } else {
+            int length = Array.getLength(array);
+            for (int i = 0; i < length; i++) {
+                Object element = Array.get(array, i);
+                if (element == null) {
+                    writer.writeNull();
+                } else {
+                    encoderContext.encodeWithChildContext(elementCodec, writer, element);
+                }
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    Codec<Object> getElementCodec() {
+        return elementCodec;
+    }
+
+    @Override
+    public Class<Object> getEncoderClass() {
+        return encoderClass;
+    }
+}
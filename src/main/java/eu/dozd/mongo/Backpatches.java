@@ -0,0 +1,37 @@
+package eu.dozd.mongo;
+
+import java.util.Arrays;
+
+/**
+ * Values back-patched by writer (document lengths) recorded by their positions in counting pass and replayed in
+ * position order in second pass. Position and value are packed into one long, so sorting by it sorts by position.
+ */
+class Backpatches {
+    private long[] entries = new long[16];
+    private int size;
+    private int next;
+    private boolean sorted;
+
+    void add(int position, int value) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size++] = ((long) position << 32) | (value & 0xffffffffL);
+        sorted = false;
+    }
+
+    /**
+     * @return back-patched value for int32 written at given position or given value when it's not back-patched.
+     * Positions must be asked in increasing order.
+     */
+    int get(int position, int value) {
+        if (!sorted) {
+            Arrays.sort(entries, 0, size);
+            sorted = true;
+        }
+        if (next < size && (int) (entries[next] >>> 32) == position) {
+            return (int) entries[next++];
+        }
+        return value;
+    }
+}
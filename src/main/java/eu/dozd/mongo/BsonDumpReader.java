@@ -0,0 +1,232 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryReader;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads entities from BSON file (e.g. collection file of mongodump). The file is memory-mapped and documents are
+ * decoded directly from the mapping, {@code ByteBuffer} properties are read-only slices of the file.
+ *
+ * Usage: {@code reader.stream().parallel().forEach(...)}, parallel streams split the file by document boundaries.
+ *
+ * @see BsonDumpWriter
+ */
+public class BsonDumpReader<T> implements Closeable {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    // Minimal size of split part in bytes.
+    private static final int MIN_SPLIT_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Codec<T> codec;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+
+    public BsonDumpReader(Path file, Class<T> clazz, CodecRegistry registry) throws IOException {
+        this(file, clazz, registry, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param segmentSize maximal size of one mapping, files larger than 2GB are mapped by more of them.
+     */
+    BsonDumpReader(Path file, Class<T> clazz, CodecRegistry registry, int segmentSize) throws IOException {
+        this.codec = registry.get(clazz);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            map(segmentSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map file by segments ending on document boundaries. File which fits into one segment is not walked in advance.
+     */
+    private void map(int segmentSize) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            int length = (int) Math.min(segmentSize, size - start);
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+            if (start + length == size) {
+                segments.add(mapped);
+                return;
+            }
+
+            int end = 0;
+            while (end + 4 <= length) {
+                int documentSize = readSize(mapped, end, Integer.MAX_VALUE);
+                if (end + documentSize > length) {
+                    break;
+                }
+                end += documentSize;
+            }
+            if (end == 0) {
+                throw new MongoMapperException("Document at position " + start + " is larger than segment size " + segmentSize + ".");
+            }
+            mapped.limit(end);
+            segments.add(mapped);
+            start += end;
+        }
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Spliterator<T> spliterator() {
+        List<DocumentSpliterator> parts = new ArrayList<>();
+        for (ByteBuffer segment : segments) {
+            parts.add(new DocumentSpliterator(segment, 0, segment.limit()));
+        }
+        return new SegmentSpliterator(parts);
+    }
+
+    /**
+     * Close the file, already mapped segments stay valid until decoded values are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int readSize(ByteBuffer buffer, int position, int remaining) {
+        int size = buffer.getInt(position);
+        if (size < 5 || size > remaining) {
+            throw new MongoMapperException("Invalid document size " + size + " at position " + position + ", file is truncated or corrupted.");
+        }
+        return size;
+    }
+
+    /**
+     * Documents of one mapped segment between given positions.
+     */
+    private class DocumentSpliterator implements Spliterator<T> {
+        private final ByteBuffer buffer;
+        private int position;
+        private final int end;
+
+        private DocumentSpliterator(ByteBuffer buffer, int position, int end) {
+            this.buffer = buffer;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (position >= end) {
+                return false;
+            }
+            if (end - position < 4) {
+                throw new MongoMapperException("Invalid document at position " + position + ", file is truncated or corrupted.");
+            }
+            int size = readSize(buffer, position, end - position);
+
+            ByteBuffer document = buffer.duplicate();
+            document.position(position).limit(position + size);
+            position += size;
+            action.accept(codec.decode(new BsonBinaryReader(new SliceableBsonInput(document.slice())), DECODER_CONTEXT));
+            return true;
+        }
+
+        /**
+         * Split in the middle, boundaries are found by skipping documents from current position by their sizes.
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            if (end - position < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            int middle = position + (end - position) / 2;
+            int split = position;
+            while (split < middle && end - split >= 4) {
+                split += readSize(buffer, split, end - split);
+            }
+            if (split >= end) {
+                return null;
+            }
+
+            DocumentSpliterator prefix = new DocumentSpliterator(buffer, position, split);
+            position = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // Number of bytes, it's upper bound of number of documents.
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Documents of more segments, they are split by segments first.
+     */
+    private class SegmentSpliterator implements Spliterator<T> {
+        private final List<DocumentSpliterator> parts;
+        private int index;
+
+        private SegmentSpliterator(List<DocumentSpliterator> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (index < parts.size()) {
+                if (parts.get(index).tryAdvance(action)) {
+                    return true;
+                }
+                index++;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int remaining = parts.size() - index;
+            if (remaining == 0) {
+                return null;
+            } else if (remaining == 1) {
+                return parts.get(index).trySplit();
+            }
+
+            int middle = index + remaining / 2;
+            SegmentSpliterator prefix = new SegmentSpliterator(new ArrayList<>(parts.subList(index, middle)));
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+            for (int i = index; i < parts.size(); i++) {
+                size += parts.get(i).estimateSize();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes entities as BSON file readable by mongorestore and {@link BsonDumpReader}. Documents are encoded into one
+ * reused buffer and piped to the stream.
+ */
+public class BsonDumpWriter<T> implements Closeable, Flushable {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    private final OutputStream out;
+    private final Codec<T> codec;
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+
+    public BsonDumpWriter(Path file, Class<T> clazz, CodecRegistry registry) throws IOException {
+        this(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024), clazz, registry);
+    }
+
+    public BsonDumpWriter(OutputStream out, Class<T> clazz, CodecRegistry registry) {
+        this.out = out;
+        this.codec = registry.get(clazz);
+    }
+
+    public void write(T value) throws IOException {
+        buffer.truncateToPosition(0);
+        codec.encode(new BsonBinaryWriter(buffer), value, ENCODER_CONTEXT);
+        buffer.pipe(out);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
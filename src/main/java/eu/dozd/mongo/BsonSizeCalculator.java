@@ -0,0 +1,52 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Computes exact size of encoded documents without encoding them into a buffer, e.g. to check 16MB document limit or
+ * to split bulk writes into batches.
+ *
+ * Ids are part of the size only when they are already set, driver generates missing ids just before insert.
+ */
+public class BsonSizeCalculator {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    private final CodecRegistry registry;
+
+    public BsonSizeCalculator(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return size of value encoded as BSON document in bytes.
+     */
+    public <T> int getSize(T value) {
+        return getSize(value, getCodec(value));
+    }
+
+    public <T> int getSize(T value, Codec<T> codec) {
+        CountingBsonOutput output = new CountingBsonOutput();
+        codec.encode(new BsonBinaryWriter(output), value, ENCODER_CONTEXT);
+        return output.getPosition();
+    }
+
+    /**
+     * Encode value into buffer of exact size, so it's never grown or copied.
+     */
+    public <T> RawBsonDocument encode(T value) {
+        Codec<T> codec = getCodec(value);
+        int size = getSize(value, codec);
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer(size);
+        codec.encode(new BsonBinaryWriter(buffer), value, ENCODER_CONTEXT);
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    private <T> Codec<T> getCodec(T value) {
+        return (Codec<T>) registry.get(value.getClass());
+    }
+}
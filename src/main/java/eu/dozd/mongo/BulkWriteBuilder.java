@@ -0,0 +1,181 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import eu.dozd.mongo.annotation.ShardKey;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.*;
+
+/**
+ * Splits entities into batches of write models for unordered bulk writes, e.g.
+ * {@code batches.forEach(batch -> collection.bulkWrite(batch, new BulkWriteOptions().ordered(false)))}.
+ *
+ * Entities are grouped by range of {@link ShardKey} property (ranges are given by split points, e.g. chunk bounds of
+ * the collection) and sorted by its value, so each batch targets as few shards as possible. Groups are split into
+ * batches limited by number of documents and their encoded size. Missing ids are generated before sizing, so
+ * upserts always have id.
+ */
+public class BulkWriteBuilder<T> {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final CodecRegistry registry;
+    private final EntityInfo info;
+    private final String shardKeyField;
+    private final BsonSizeCalculator sizeCalculator;
+
+    private boolean upsert;
+    private int maxCount = 1000;
+    private int maxBytes = 16 * 1024 * 1024;
+    private List<Comparable<Object>> splitPoints = Collections.emptyList();
+
+    public BulkWriteBuilder(Class<T> entityClass, CodecRegistry registry) {
+        Codec<T> codec = registry.get(entityClass);
+        if (!(codec instanceof EntityCodec) || ((EntityCodec<T>) codec).getInfo().getIdField() == null) {
+            throw new MongoMapperException("Class " + entityClass.getName() + " is not mapped entity with id.");
+        }
+        this.registry = registry;
+        this.info = ((EntityCodec<T>) codec).getInfo();
+        this.shardKeyField = findShardKey(info);
+        this.sizeCalculator = new BsonSizeCalculator(registry);
+    }
+
+    /**
+     * Produce upserts replacing documents with the same id (and shard key) instead of inserts.
+     */
+    public BulkWriteBuilder<T> upsert(boolean upsert) {
+        this.upsert = upsert;
+        return this;
+    }
+
+    /**
+     * Maximum number of documents in batch, 1000 by default.
+     */
+    public BulkWriteBuilder<T> maxCount(int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("Max count must be positive.");
+        }
+        this.maxCount = maxCount;
+        return this;
+    }
+
+    /**
+     * Maximum encoded size of documents in batch, 16MB by default. Larger documents are sent in batch of their own.
+     */
+    public BulkWriteBuilder<T> maxBytes(int maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max bytes must be positive.");
+        }
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Lower bounds of shard key ranges (e.g. chunk bounds), values of shard key property type. Entities from different
+     * ranges are never in the same batch.
+     */
+    public BulkWriteBuilder<T> splitPoints(Collection<?> splitPoints) {
+        if (shardKeyField == null) {
+            throw new MongoMapperException("Class " + info.getEntityName() + " has no shard key.");
+        }
+        List<Comparable<Object>> points = new ArrayList<>();
+        for (Object point : splitPoints) {
+            points.add((Comparable<Object>) point);
+        }
+        Collections.sort(points);
+        this.splitPoints = points;
+        return this;
+    }
+
+    /**
+     * @return batches of write models, each of them can be sent as one unordered bulk write.
+     */
+    public List<List<WriteModel<T>>> build(Iterable<? extends T> entities) {
+        SortedMap<Integer, List<T>> groups = new TreeMap<>();
+        for (T entity : entities) {
+            getCodec(entity).generateIdIfAbsentFromDocument(entity);
+            groups.computeIfAbsent(getRange(entity), r -> new ArrayList<>()).add(entity);
+        }
+
+        List<List<WriteModel<T>>> batches = new ArrayList<>();
+        for (List<T> group : groups.values()) {
+            if (shardKeyField != null) {
+                group.sort(Comparator.comparing(e -> (Comparable<Object>) info.getValue(e, shardKeyField), Comparator.nullsFirst(Comparator.naturalOrder())));
+            }
+
+            List<WriteModel<T>> batch = new ArrayList<>();
+            long batchBytes = 0;
+            for (T entity : group) {
+                EntityCodec<T> codec = getCodec(entity);
+                int size = sizeCalculator.getSize(entity, codec);
+                if (!batch.isEmpty() && (batch.size() >= maxCount || batchBytes + size > maxBytes)) {
+                    batches.add(batch);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(createModel(entity, codec));
+                batchBytes += size;
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    private WriteModel<T> createModel(T entity, EntityCodec<T> codec) {
+        if (!upsert) {
+            return new InsertOneModel<>(entity);
+        }
+
+        // Document id is in the form written by encode, e.g. String ids stay strings.
+        BsonDocument filter = new BsonDocument("_id", codec.getDocumentId(entity));
+        if (shardKeyField != null && !shardKeyField.equals(info.getIdField())) {
+            // Targeted to one shard instead of broadcast.
+            Object value = info.getValue(entity, shardKeyField);
+            String storedName = info.getStoredName(shardKeyField);
+            BsonDocumentWriter writer = new BsonDocumentWriter(filter);
+            writer.writeStartDocument();
+            writer.writeName(storedName);
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                ((Codec<Object>) codec.getCodecByStoredName(storedName)).encode(writer, value, ENCODER_CONTEXT);
+            }
+            writer.writeEndDocument();
+        }
+        return new ReplaceOneModel<>(filter, entity, new UpdateOptions().upsert(true));
+    }
+
+    private int getRange(T entity) {
+        if (splitPoints.isEmpty()) {
+            return 0;
+        }
+        Object value = info.getValue(entity, shardKeyField);
+        if (value == null) {
+            return 0;
+        }
+        // Number of split points lower or equal to the value.
+        int index = Collections.binarySearch(splitPoints, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private EntityCodec<T> getCodec(T entity) {
+        return (EntityCodec<T>) registry.get(entity.getClass());
+    }
+
+    private static String findShardKey(EntityInfo info) {
+        for (String field : info.getFields()) {
+            if (info.getAnnotation(field, ShardKey.class) != null) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
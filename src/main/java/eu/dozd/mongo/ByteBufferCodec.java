@@ -0,0 +1,50 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for {@link ByteBuffer} properties stored as binary. Reading from {@link SliceableBsonInput} avoids copying of
+ * the data, other inputs decode into new heap buffer.
+ */
+class ByteBufferCodec implements Codec<ByteBuffer> {
+
+    @Override
+    public ByteBuffer decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader instanceof BsonBinaryReader && ((BsonBinaryReader) reader).getBsonInput() instanceof SliceableBsonInput) {
+            SliceableBsonInput input = (SliceableBsonInput) ((BsonBinaryReader) reader).getBsonInput();
+            // Binary value is length, subtype and data, old binary subtype repeats the length before data.
+            int length = input.peekInt32(0);
+            int offset = 5;
+            if (input.peekByte(4) == BsonBinarySubType.OLD_BINARY.getValue()) {
+                length = input.peekInt32(offset);
+                offset += 4;
+            }
+            ByteBuffer slice = input.slice(offset, length);
+            reader.skipValue();
+            return slice;
+        }
+
+        return ByteBuffer.wrap(reader.readBinaryData().getData());
+    }
+
+    @Override
+    public void encode(BsonWriter writer, ByteBuffer value, EncoderContext encoderContext) {
+        byte[] data = new byte[value.remaining()];
+        value.duplicate().get(data);
+        writer.writeBinaryData(new BsonBinary(data));
+    }
+
+    @Override
+    public Class<ByteBuffer> getEncoderClass() {
+        return ByteBuffer.class;
+    }
+}
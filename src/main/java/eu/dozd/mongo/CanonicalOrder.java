@@ -0,0 +1,8 @@
+package eu.dozd.mongo;
+
+/**
+ * Marker of writers which need equal values encoded to equal bytes, e.g. for hashing. Codecs of unordered maps and
+ * sets write their entries in canonical order to such writers, other writers get the iteration order.
+ */
+interface CanonicalOrder {
+}
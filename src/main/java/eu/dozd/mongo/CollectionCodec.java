@@ -0,0 +1,195 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.BsonOutput;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Codec for collection properties (lists, sets, queues). Elements are handled by codec of declared element type.
+ * Decoded collection has declared implementation type and is presized by size of the last decoded collection.
+ */
+class CollectionCodec implements Codec<Collection<Object>> {
+    private final Class<Collection<Object>> collectionType;
+    private final Codec<Object> elementCodec;
+    private final IntFunction<Collection<Object>> factory;
+    private volatile int sizeHint;
+
+    CollectionCodec(Class<?> collectionType, Class<?> elementType, Codec<?> elementCodec) {
+        this.collectionType = (Class<Collection<Object>>) collectionType;
+        this.elementCodec = (Codec<Object>) elementCodec;
+        this.factory = createFactory(collectionType, elementType);
+    }
+
+    private static IntFunction<Collection<Object>> createFactory(Class<?> collectionType, final Class<?> elementType) {
+        if (elementType.isEnum() && (collectionType.equals(Set.class) || collectionType.equals(EnumSet.class))) {
+            return size -> EnumSet.noneOf((Class<Enum>) elementType);
+        } else if (collectionType.isInterface() || Modifier.isAbstract(collectionType.getModifiers())) {
+            if (SortedSet.class.isAssignableFrom(collectionType)) {
+                return size -> new TreeSet<>();
+            } else if (Set.class.isAssignableFrom(collectionType)) {
+                return size -> new HashSet<>(MapCodec.capacity(size));
+            } else if (Queue.class.isAssignableFrom(collectionType) && !List.class.isAssignableFrom(collectionType)) {
+                return size -> new ArrayDeque<>(size);
+            }
+            return ArrayList::new;
+        } else if (collectionType.equals(ArrayList.class)) {
+            return ArrayList::new;
+        } else if (collectionType.equals(HashSet.class)) {
+            return size -> new HashSet<>(MapCodec.capacity(size));
+        } else if (collectionType.equals(LinkedHashSet.class)) {
+            return size -> new LinkedHashSet<>(MapCodec.capacity(size));
+        } else if (collectionType.equals(ArrayDeque.class)) {
+            return ArrayDeque::new;
+        }
+
+        final Constructor<?> constructor;
+        try {
+            constructor = collectionType.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new MongoMapperException("Collection type " + collectionType.getName() + " has no public constructor without arguments.", e);
+        }
+        return size -> {
+            try {
+                return (Collection<Object>) constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new MongoMapperException("Cannot create instance of collection " + constructor.getDeclaringClass().getName(), e);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> decode(BsonReader reader, DecoderContext decoderContext) {
+        return decodeInto(reader, decoderContext, factory.apply(sizeHint));
+    }
+
+    /**
+     * Decode elements into given empty collection.
+     */
+    Collection<Object> decodeInto(BsonReader reader, DecoderContext decoderContext, Collection<Object> collection) {
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                collection.add(null);
+            } else {
+                collection.add(elementCodec.decode(reader, decoderContext));
+            }
+        }
+        reader.readEndArray();
+
+        sizeHint = collection.size();
+        return collection;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Collection<Object> collection, EncoderContext encoderContext) {
+        Collection<Object> elements = collection;
+        if (writer instanceof CanonicalOrder && collection.size() > 1 && collection instanceof Set
+                && !(collection instanceof SortedSet) && !(collection instanceof EnumSet)) {
+            // Iteration order of equal sets can differ, canonical encoding must not.
+            elements = sort(collection, encoderContext);
+        }
+
+        writer.writeStartArray();
+        for (Object element : elements) {
+            if (element == null) {
+                writer.writeNull();
+            } else {
+                encoderContext.encodeWithChildContext(elementCodec, writer, element);
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    /**
+     * @return elements in natural order when they are comparable, otherwise in order of their encoded bytes.
+     */
+    private List<Object> sort(Collection<Object> set, EncoderContext encoderContext) {
+        List<Object> elements = new ArrayList<>(set);
+        if (isComparable(elements)) {
+            elements.sort(Comparator.nullsFirst((a, b) -> ((Comparable<Object>) a).compareTo(b)));
+            return elements;
+        }
+
+        byte[][] encoded = new byte[elements.size()][];
+        Integer[] order = new Integer[elements.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encodeElement(elements.get(i), encoderContext);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareBytes(encoded[a], encoded[b]));
+
+        List<Object> sorted = new ArrayList<>(elements.size());
+        for (int index : order) {
+            sorted.add(elements.get(index));
+        }
+        return sorted;
+    }
+
+    private static boolean isComparable(List<Object> elements) {
+        Class<?> type = null;
+        for (Object element : elements) {
+            if (element == null) {
+                continue;
+            }
+            if (!(element instanceof Comparable) || (type != null && element.getClass() != type)) {
+                return false;
+            }
+            type = element.getClass();
+        }
+        return true;
+    }
+
+    private byte[] encodeElement(Object element, EncoderContext encoderContext) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        BsonBinaryWriter writer = new CanonicalElementWriter(buffer);
+        writer.writeStartDocument();
+        writer.writeName("v");
+        if (element == null) {
+            writer.writeNull();
+        } else {
+            encoderContext.encodeWithChildContext(elementCodec, writer, element);
+        }
+        writer.writeEndDocument();
+        return buffer.toByteArray();
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int comparison = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    Codec<Object> getElementCodec() {
+        return elementCodec;
+    }
+
+    @Override
+    public Class<Collection<Object>> getEncoderClass() {
+        return collectionType;
+    }
+
+    /**
+     * Writer of elements compared by their bytes, nested unordered containers are canonical as well.
+     */
+    private static final class CanonicalElementWriter extends BsonBinaryWriter implements CanonicalOrder {
+        private CanonicalElementWriter(BsonOutput output) {
+            super(output);
+        }
+    }
+}
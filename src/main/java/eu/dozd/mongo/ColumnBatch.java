@@ -0,0 +1,102 @@
+package eu.dozd.mongo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Columns of numeric properties decoded by {@link ColumnarDecoder}, one row per document. Rows with null or missing
+ * value have zero in the column and set bit in its null bitmap.
+ */
+public class ColumnBatch {
+    enum Type {
+        DOUBLE, LONG, INT
+    }
+
+    private final String[] properties;
+    private final Type[] types;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int size;
+
+    ColumnBatch(String[] properties, Type[] types, int size) {
+        this.properties = properties;
+        this.types = types;
+        this.size = size;
+        this.columns = new Object[properties.length];
+        this.nulls = new BitSet[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            switch (types[i]) {
+                case DOUBLE:
+                    columns[i] = new double[size];
+                    break;
+                case LONG:
+                    columns[i] = new long[size];
+                    break;
+                default:
+                    columns[i] = new int[size];
+            }
+            nulls[i] = new BitSet(size);
+        }
+    }
+
+    /**
+     * @return number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    public double[] getDoubles(String property) {
+        return getDoubles(getColumn(property, Type.DOUBLE));
+    }
+
+    public long[] getLongs(String property) {
+        return getLongs(getColumn(property, Type.LONG));
+    }
+
+    public int[] getInts(String property) {
+        return getInts(getColumn(property, Type.INT));
+    }
+
+    /**
+     * @return bitmap of rows with null or missing value of property.
+     */
+    public BitSet getNulls(String property) {
+        return getNulls(getColumn(property, null));
+    }
+
+    public boolean isNull(String property, int row) {
+        return getNulls(property).get(row);
+    }
+
+    Type getType(int column) {
+        return types[column];
+    }
+
+    double[] getDoubles(int column) {
+        return (double[]) columns[column];
+    }
+
+    long[] getLongs(int column) {
+        return (long[]) columns[column];
+    }
+
+    int[] getInts(int column) {
+        return (int[]) columns[column];
+    }
+
+    BitSet getNulls(int column) {
+        return nulls[column];
+    }
+
+    private int getColumn(String property, Type type) {
+        int column = Arrays.asList(properties).indexOf(property);
+        if (column < 0) {
+            throw new MongoMapperException("Property " + property + " was not decoded.");
+        }
+        if (type != null && types[column] != type) {
+            throw new MongoMapperException("Property " + property + " is decoded as " + types[column].name().toLowerCase() + " column.");
+        }
+        return column;
+    }
+}
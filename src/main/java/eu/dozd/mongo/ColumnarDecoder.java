@@ -0,0 +1,192 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.ByteBufferBsonInput;
+
+import java.util.*;
+
+/**
+ * Decodes selected numeric properties of batch of documents into primitive arrays, without creating entities. Other
+ * fields are skipped and scan of a document stops when all selected fields were read.
+ *
+ * Properties of type {@code double}, {@code float} and their wrappers are decoded into {@code double[]},
+ * {@code long}, {@code Long} and {@code Date} into {@code long[]} (dates as epoch milliseconds) and {@code int},
+ * {@code short}, {@code byte} and their wrappers into {@code int[]}. Values out of range of the property type are
+ * rejected, as are fractional values and NaN of integral properties. Missing
+ * values are null, except sparse primitives which are zero as in decoded entity. Only properties of the entity itself
+ * are supported, not of its embedded entities.
+ */
+public class ColumnarDecoder {
+    private final EntityInfo info;
+    private final String[] properties;
+    // Selected properties by stored name.
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final ColumnBatch.Type[] types;
+    // Range of integral properties and whether floating properties are floats.
+    private final long[] min;
+    private final long[] max;
+    private final boolean[] floats;
+    // Sparse primitives, which are omitted when zero and so are not null when missing.
+    private final boolean[] zeroWhenMissing;
+
+    /**
+     * @param registry registry with codec of the entity class.
+     */
+    public ColumnarDecoder(Class<?> entityClass, CodecRegistry registry, String... properties) {
+        Codec<?> codec = registry.get(entityClass);
+        if (!(codec instanceof EntityCodec)) {
+            throw new MongoMapperException("Class " + entityClass.getName() + " is not mapped.");
+        }
+        EntityCodec<?> entityCodec = (EntityCodec<?>) codec;
+        this.info = entityCodec.getInfo();
+        this.properties = properties.clone();
+        this.types = new ColumnBatch.Type[properties.length];
+        this.zeroWhenMissing = new boolean[properties.length];
+        this.min = new long[properties.length];
+        this.max = new long[properties.length];
+        this.floats = new boolean[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            if (!info.hasField(properties[i])) {
+                throw new MongoMapperException("Property " + properties[i] + " of " + info.getEntityName() + " is not mapped.");
+            }
+            String storedName = info.getStoredName(properties[i]);
+            Class<?> type = info.getFieldType(properties[i]);
+            types[i] = getType(properties[i], type);
+            setRange(i, type);
+            // Same value as decoded by entity codec.
+            zeroWhenMissing[i] = info.isSparse(properties[i]) && entityCodec.getMissingValue(storedName) != null;
+            indexes.put(storedName, i);
+        }
+    }
+
+    private ColumnBatch.Type getType(String property, Class<?> type) {
+        if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+            return ColumnBatch.Type.DOUBLE;
+        } else if (type == long.class || type == Long.class || type == Date.class) {
+            return ColumnBatch.Type.LONG;
+        } else if (type == int.class || type == Integer.class || type == short.class || type == Short.class
+                || type == byte.class || type == Byte.class) {
+            return ColumnBatch.Type.INT;
+        }
+        throw new MongoMapperException("Property " + property + " of " + info.getEntityName() + " is not numeric.");
+    }
+
+    private void setRange(int column, Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            min[column] = Integer.MIN_VALUE;
+            max[column] = Integer.MAX_VALUE;
+        } else if (type == short.class || type == Short.class) {
+            min[column] = Short.MIN_VALUE;
+            max[column] = Short.MAX_VALUE;
+        } else if (type == byte.class || type == Byte.class) {
+            min[column] = Byte.MIN_VALUE;
+            max[column] = Byte.MAX_VALUE;
+        } else {
+            min[column] = Long.MIN_VALUE;
+            max[column] = Long.MAX_VALUE;
+        }
+        floats[column] = type == float.class || type == Float.class;
+    }
+
+    public ColumnBatch decode(List<? extends RawBsonDocument> documents) {
+        ColumnBatch batch = new ColumnBatch(properties, types, documents.size());
+        boolean[] found = new boolean[properties.length];
+        for (int row = 0; row < documents.size(); row++) {
+            Arrays.fill(found, false);
+            decode(new BsonBinaryReader(new ByteBufferBsonInput(documents.get(row).getByteBuffer())), batch, row, found);
+        }
+        return batch;
+    }
+
+    /**
+     * Read selected fields of one document into given row, fields missing in the document are marked as null (unless
+     * they are sparse primitives).
+     */
+    private void decode(BsonReader reader, ColumnBatch batch, int row, boolean[] found) {
+        int remaining = properties.length;
+
+        reader.readStartDocument();
+        while (remaining > 0 && reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Integer column = indexes.get(reader.readName());
+            if (column == null || found[column]) {
+                reader.skipValue();
+                continue;
+            }
+            found[column] = true;
+            remaining--;
+            readValue(reader, batch, column, row);
+        }
+
+        for (int column = 0; column < found.length; column++) {
+            if (!found[column] && !zeroWhenMissing[column]) {
+                batch.getNulls(column).set(row);
+            }
+        }
+    }
+
+    private void readValue(BsonReader reader, ColumnBatch batch, int column, int row) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        switch (bsonType) {
+            case NULL:
+                reader.readNull();
+                batch.getNulls(column).set(row);
+                return;
+            case DOUBLE:
+                set(batch, column, row, reader.readDouble());
+                return;
+            case INT32:
+                set(batch, column, row, reader.readInt32());
+                return;
+            case INT64:
+                set(batch, column, row, reader.readInt64());
+                return;
+            case DATE_TIME:
+                set(batch, column, row, reader.readDateTime());
+                return;
+            default:
+                throw new MongoMapperException("Cannot decode " + bsonType + " of property " + properties[column] + " as number.");
+        }
+    }
+
+    private void set(ColumnBatch batch, int column, int row, double value) {
+        if (batch.getType(column) == ColumnBatch.Type.DOUBLE) {
+            if (floats[column] && Double.isFinite(value) && Math.abs(value) > Float.MAX_VALUE) {
+                throw outOfRange(column, value);
+            }
+            batch.getDoubles(column)[row] = value;
+            return;
+        }
+
+        // Integral value only, NaN differs from itself. Upper bound + 1 is exact even for long.
+        if (value != Math.rint(value) || value < min[column] || value >= max[column] + 1.0) {
+            throw outOfRange(column, value);
+        }
+        set(batch, column, row, (long) value);
+    }
+
+    private void set(ColumnBatch batch, int column, int row, long value) {
+        switch (batch.getType(column)) {
+            case DOUBLE:
+                batch.getDoubles(column)[row] = value;
+                break;
+            case LONG:
+                batch.getLongs(column)[row] = value;
+                break;
+            default:
+                if (value < min[column] || value > max[column]) {
+                    throw outOfRange(column, value);
+                }
+                batch.getInts(column)[row] = (int) value;
+        }
+    }
+
+    private MongoMapperException outOfRange(int column, Object value) {
+        return new MongoMapperException("Value " + value + " of property " + properties[column] + " does not fit "
+                + info.getFieldType(properties[column]).getSimpleName() + ".");
+    }
+}
@@ -0,0 +1,71 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BsonOutput;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes hash of encoded entity without encoding it into a buffer, e.g. to skip writes of unchanged entities by
+ * comparing it with hash stored on last write. Hash is equal to digest of the encoded BSON document, except entries of
+ * maps and elements of sets which are not sorted or enum based are written in canonical order, so equal maps and
+ * sets have equal hash regardless of their capacity or insertion order.
+ *
+ * Entity is encoded twice, first pass only counts document lengths.
+ */
+public class ContentHasher {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    private final CodecRegistry registry;
+    private final String algorithm;
+
+    /**
+     * Hasher using SHA-256.
+     */
+    public ContentHasher(CodecRegistry registry) {
+        this(registry, "SHA-256");
+    }
+
+    /**
+     * @param algorithm name of {@link MessageDigest} algorithm, e.g. "MD5" or "SHA-1".
+     */
+    public ContentHasher(CodecRegistry registry, String algorithm) {
+        this.registry = registry;
+        this.algorithm = algorithm;
+        // Fail fast on unknown algorithm.
+        createDigest();
+    }
+
+    public <T> byte[] hash(T value) {
+        return hash(value, (Codec<T>) registry.get(value.getClass()));
+    }
+
+    public <T> byte[] hash(T value, Codec<T> codec) {
+        Backpatches backpatches = new Backpatches();
+        codec.encode(new CanonicalWriter(new CountingBsonOutput(backpatches)), value, ENCODER_CONTEXT);
+
+        DigestBsonOutput output = new DigestBsonOutput(createDigest(), backpatches);
+        codec.encode(new CanonicalWriter(output), value, ENCODER_CONTEXT);
+        return output.digest();
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new MongoMapperException("Hash algorithm " + algorithm + " is not available.", e);
+        }
+    }
+
+    /**
+     * Writer of hashed documents, unordered maps and sets are written to it in canonical order.
+     */
+    private static final class CanonicalWriter extends BsonBinaryWriter implements CanonicalOrder {
+        private CanonicalWriter(BsonOutput output) {
+            super(output);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonSerializationException;
+import org.bson.io.BsonOutput;
+import org.bson.types.ObjectId;
+
+/**
+ * Output which only counts written bytes. Used with {@link org.bson.BsonBinaryWriter} to get exact size of encoded
+ * document without allocating any buffer.
+ */
+class CountingBsonOutput implements BsonOutput {
+    private final Backpatches backpatches;
+    private int position;
+
+    CountingBsonOutput() {
+        this(null);
+    }
+
+    /**
+     * @param backpatches filled with values back-patched by writer (document lengths) by their positions.
+     */
+    CountingBsonOutput(Backpatches backpatches) {
+        this.backpatches = backpatches;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getSize() {
+        return position;
+    }
+
+    @Override
+    public void truncateToPosition(int newPosition) {
+        if (newPosition > position || newPosition < 0) {
+            throw new IllegalArgumentException();
+        }
+        position = newPosition;
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) {
+        position += bytes.length;
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        position += length;
+    }
+
+    @Override
+    public void writeByte(int value) {
+        position++;
+    }
+
+    @Override
+    public void writeCString(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == 0) {
+                throw new BsonSerializationException(String.format("BSON cstring '%s' is not valid because it contains a null character at index %d", value, i));
+            }
+        }
+        position += utf8Length(value) + 1;
+    }
+
+    @Override
+    public void writeString(String value) {
+        position += 4 + utf8Length(value) + 1;
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        position += 8;
+    }
+
+    @Override
+    public void writeInt32(int value) {
+        position += 4;
+    }
+
+    @Override
+    public void writeInt32(int position, int value) {
+        // Back-patched document lengths do not change size.
+        if (backpatches != null) {
+            backpatches.add(position, value);
+        }
+    }
+
+    @Override
+    public void writeInt64(long value) {
+        position += 8;
+    }
+
+    @Override
+    public void writeObjectId(ObjectId value) {
+        position += 12;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return number of bytes of string encoded as UTF-8, same as written by {@link org.bson.io.OutputBuffer}.
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        int i = 0;
+        while (i < value.length()) {
+            int c = Character.codePointAt(value, i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (c < 0x10000) {
+                length += 3;
+            } else {
+                length += 4;
+            }
+            i += Character.charCount(c);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,25 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.StringCodec;
+
+/**
+ * String codec decoding through {@link StringCache}.
+ */
+class DeduplicatingStringCodec extends StringCodec {
+    private final StringCache cache;
+
+    DeduplicatingStringCodec(StringCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return cache.read(reader);
+        }
+        return cache.deduplicate(super.decode(reader, decoderContext));
+    }
+}
@@ -0,0 +1,160 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonSerializationException;
+import org.bson.io.BsonOutput;
+import org.bson.types.ObjectId;
+
+import java.security.MessageDigest;
+
+/**
+ * Output which feeds written bytes to message digest instead of buffer. Document lengths are back-patched by writer
+ * after the document is written, so their values have to be known in advance from counting pass.
+ *
+ * @see CountingBsonOutput#CountingBsonOutput(Backpatches)
+ */
+class DigestBsonOutput implements BsonOutput {
+    private final MessageDigest digest;
+    private final Backpatches backpatches;
+    private final byte[] buffer = new byte[1024];
+    private int buffered;
+    private int position;
+
+    DigestBsonOutput(MessageDigest digest, Backpatches backpatches) {
+        this.digest = digest;
+        this.backpatches = backpatches;
+    }
+
+    /**
+     * @return digest of all written bytes, output can't be used anymore.
+     */
+    byte[] digest() {
+        flush();
+        return digest.digest();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getSize() {
+        return position;
+    }
+
+    @Override
+    public void truncateToPosition(int newPosition) {
+        throw new UnsupportedOperationException("Digested bytes can't be truncated.");
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) {
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        if (length > buffer.length - buffered) {
+            flush();
+            if (length > buffer.length) {
+                digest.update(bytes, offset, length);
+                position += length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, buffered, length);
+        buffered += length;
+        position += length;
+    }
+
+    @Override
+    public void writeByte(int value) {
+        if (buffered == buffer.length) {
+            flush();
+        }
+        buffer[buffered++] = (byte) value;
+        position++;
+    }
+
+    @Override
+    public void writeCString(String value) {
+        writeCharacters(value, true);
+        writeByte(0);
+    }
+
+    @Override
+    public void writeString(String value) {
+        writeInt32(CountingBsonOutput.utf8Length(value) + 1);
+        writeCharacters(value, false);
+        writeByte(0);
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        writeInt64(Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void writeInt32(int value) {
+        value = backpatches.get(position, value);
+        writeByte(value);
+        writeByte(value >> 8);
+        writeByte(value >> 16);
+        writeByte(value >> 24);
+    }
+
+    @Override
+    public void writeInt32(int position, int value) {
+        // Value was already written from counting pass.
+    }
+
+    @Override
+    public void writeInt64(long value) {
+        for (int i = 0; i < 8; i++) {
+            writeByte((int) (value >> (8 * i)));
+        }
+    }
+
+    @Override
+    public void writeObjectId(ObjectId value) {
+        writeBytes(value.toByteArray());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void flush() {
+        digest.update(buffer, 0, buffered);
+        buffered = 0;
+    }
+
+    /**
+     * Same UTF-8 encoding as {@link org.bson.io.OutputBuffer}.
+     */
+    private void writeCharacters(String value, boolean checkForNull) {
+        int i = 0;
+        while (i < value.length()) {
+            int c = Character.codePointAt(value, i);
+            if (checkForNull && c == 0) {
+                throw new BsonSerializationException(String.format("BSON cstring '%s' is not valid because it contains a null character at index %d", value, i));
+            }
+            if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xc0 + (c >> 6));
+                writeByte(0x80 + (c & 0x3f));
+            } else if (c < 0x10000) {
+                writeByte(0xe0 + (c >> 12));
+                writeByte(0x80 + ((c >> 6) & 0x3f));
+                writeByte(0x80 + (c & 0x3f));
+            } else {
+                writeByte(0xf0 + (c >> 18));
+                writeByte(0x80 + ((c >> 12) & 0x3f));
+                writeByte(0x80 + ((c >> 6) & 0x3f));
+                writeByte(0x80 + (c & 0x3f));
+            }
+            i += Character.charCount(c);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Codec for values without declared type. Decodes by BSON type and encodes by the class of given value, same as
+ * {@link org.bson.codecs.DocumentCodec} does for document values.
+ */
+class DynamicCodec implements Codec<Object> {
+    private final CodecRegistry registry;
+    private final BsonTypeClassMap bsonTypeClassMap = new BsonTypeClassMap();
+
+    DynamicCodec(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object decode(BsonReader reader, DecoderContext decoderContext) {
+        BsonType bsonType = reader.getCurrentBsonType();
+
+        if (bsonType == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        } else if (bsonType == BsonType.ARRAY) {
+            return readList(reader, decoderContext);
+        } else if (bsonType == BsonType.BINARY) {
+            byte bsonSubType = reader.peekBinarySubType();
+            if (bsonSubType == BsonBinarySubType.UUID_STANDARD.getValue() || bsonSubType == BsonBinarySubType.UUID_LEGACY.getValue()) {
+                return registry.get(UUID.class).decode(reader, decoderContext);
+            }
+        }
+        return registry.get(bsonTypeClassMap.get(bsonType)).decode(reader, decoderContext);
+    }
+
+    private List<Object> readList(final BsonReader reader, final DecoderContext decoderContext) {
+        reader.readStartArray();
+        List<Object> list = new ArrayList<>();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            list.add(decode(reader, decoderContext));
+        }
+        reader.readEndArray();
+        return list;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof Enum) {
+            writer.writeString(((Enum) value).name());
+        } else if (value instanceof Iterable) {
+            writer.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                encode(writer, item, encoderContext);
+            }
+            writer.writeEndArray();
+        } else if (value instanceof Map) {
+            writer.writeStartDocument();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object key = entry.getKey();
+                writer.writeName(key instanceof Enum ? ((Enum) key).name() : String.valueOf(key));
+                encode(writer, entry.getValue(), encoderContext);
+            }
+            writer.writeEndDocument();
+        } else {
+            Codec<Object> codec = (Codec<Object>) registry.get(value.getClass());
+            encoderContext.encodeWithChildContext(codec, writer, value);
+        }
+    }
+
+    @Override
+    public Class<Object> getEncoderClass() {
+        return Object.class;
+    }
+}
@@ -1,43 +1,177 @@
 package eu.dozd.mongo;
 
+import eu.dozd.mongo.annotation.Compressed;
+import eu.dozd.mongo.annotation.Deduplicated;
+import eu.dozd.mongo.codecs.compression.CompressedCodec;
 import org.bson.*;
-import org.bson.assertions.Assertions;
 import org.bson.codecs.*;
 import org.bson.codecs.configuration.CodecConfigurationException;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  * Codec used to decode and encode registered entities.
  */
-class EntityCodec<T> implements CollectibleCodec<T> {
+class EntityCodec<T> implements CollectibleCodec<T>, ReusingDecoder<T> {
     private static final String ID_FIELD = "_id";
+    private static final RawDocumentCodec RAW_DOCUMENT_CODEC = new RawDocumentCodec();
+    private static final ByteBufferCodec BYTE_BUFFER_CODEC = new ByteBufferCodec();
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+
+    static {
+        PRIMITIVE_DEFAULTS.put(boolean.class, false);
+        PRIMITIVE_DEFAULTS.put(char.class, '\0');
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(float.class, 0f);
+        PRIMITIVE_DEFAULTS.put(double.class, 0d);
+    }
     private final Class<T> clazz;
     private final EntityInfo info;
     private final IdGenerator idGenerator;
-    private final DocumentCodec documentCodec;
-    private final BsonTypeClassMap bsonTypeClassMap;
+    private final Codec<?> idCodec;
+    private final DynamicCodec dynamicCodec;
     private final CodecRegistry registry;
     private final List<Class<?>> ignoredTypes = new LinkedList<>();
-    private final Map<String, Class<?>> typeCache = new HashMap<>();
+    private final Map<String, EntityCodec<? extends T>> subclassCodecs = new HashMap<>();
+    private final Map<Class<?>, EntityCodec<? extends T>> subclassCodecsByClass = new HashMap<>();
+    // Properties (without id) by their stored name.
+    private final Map<String, MappedField> mappedFields = new HashMap<>();
+    // Properties of projection interface by their getters.
+    private final Map<Method, String> projectionMethods = new HashMap<>();
 
     public EntityCodec(Class<T> clazz, EntityInfo info) {
         this.clazz = clazz;
         this.info = info;
-        idGenerator = Assertions.notNull("idGenerator", new ObjectIdGenerator());
+        IdGenerator configuredGenerator = MongoMapper.getIdGenerator(clazz);
+        idGenerator = configuredGenerator != null ? configuredGenerator : info.getIdGenerator();
         registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
-        documentCodec = new DocumentCodec(registry, new BsonTypeClassMap());
-        bsonTypeClassMap = new BsonTypeClassMap();
+        dynamicCodec = new DynamicCodec(registry);
+
+        idCodec = createIdCodec();
+
+        // Resolve codec tree of every property once, so no registry lookups are needed while decoding.
+        for (String field : info.getFields()) {
+            if (!field.equals(info.getIdField())) {
+                mappedFields.put(info.getStoredName(field), new MappedField(field, mappedFields.size(), info.getFieldType(field), getFieldCodec(field), info.isSparse(field)));
+                if (clazz.isInterface()) {
+                    projectionMethods.put(info.getReadMethod(field), field);
+                }
+            }
+        }
+
+        // Dispatch table for mapped subclasses.
+        for (EntityInfo subclassInfo : info.getSubclasses().values()) {
+            EntityCodec<? extends T> codec = new EntityCodec<>((Class<? extends T>) subclassInfo.getEntityClass(), subclassInfo);
+            subclassCodecs.put(subclassInfo.getDiscriminator(), codec);
+            subclassCodecsByClass.put(subclassInfo.getEntityClass(), codec);
+        }
+    }
+
+    private Codec<?> getFieldCodec(String field) {
+        Deduplicated deduplicated = info.getAnnotation(field, Deduplicated.class);
+        if (deduplicated != null) {
+            String name = deduplicated.value().isEmpty() ? clazz.getName() + "." + field : deduplicated.value();
+            return getCodecForGenericType(info.getGenericType(field), new DeduplicatingStringCodec(MongoMapper.getStringCache(name, deduplicated.size())));
+        }
+
+        Compressed compressed = info.getAnnotation(field, Compressed.class);
+        if (compressed == null) {
+            return getCodecForGenericType(info.getGenericType(field));
+        }
+
+        Class<?> type = info.getFieldType(field);
+        if (!type.equals(String.class) && !type.equals(byte[].class)) {
+            throw new MongoMapperException("Only String and byte[] properties can be compressed, " + field + " is " + type.getName() + ".");
+        }
+        try {
+            return new CompressedCodec<>(type, compressed.threshold(), compressed.compressor().newInstance());
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new MongoMapperException("Cannot create compressor " + compressed.compressor().getName() + ".", e);
+        }
+    }
+
+    /**
+     * @return codec for custom id types, null when id is decoded from its BSON type (strings, ObjectIds, numbers and
+     * UUIDs).
+     */
+    private Codec<?> createIdCodec() {
+        Class<?> idType = info.getIdType();
+        if (idType == null || idType.isPrimitive() || idType.equals(Object.class) || idType.equals(String.class)
+                || idType.equals(ObjectId.class) || idType.equals(UUID.class) || Number.class.isAssignableFrom(idType)) {
+            return null;
+        }
+        return getCodecForType(idType);
+    }
+
+    /**
+     * Build codec for given (possibly parametrized) type. Containers get codecs of their element types, so nested
+     * types like {@code List<List<X>>} or {@code Map<String, Set<X>>} are decoded to declared types. Codecs of mapped
+     * classes are resolved on first use, because mapped classes can reference each other.
+     */
+    private Codec<?> getCodecForGenericType(Type type) {
+        return getCodecForGenericType(type, null);
+    }
+
+    /**
+     * @param stringCodec codec used for strings in given type instead of the default one, may be null.
+     */
+    private Codec<?> getCodecForGenericType(Type type, Codec<String> stringCodec) {
+        Class<?> raw = GenericTypes.getRawClass(type);
+
+        if (raw.equals(String.class) && stringCodec != null) {
+            return stringCodec;
+        } else if (raw.equals(RawBsonDocument.class)) {
+            return RAW_DOCUMENT_CODEC;
+        } else if (raw.equals(ByteBuffer.class)) {
+            return BYTE_BUFFER_CODEC;
+        } else if (raw.equals(Object.class)) {
+            return dynamicCodec;
+        } else if (raw.isEnum()) {
+            return new EnumCodec(raw);
+        } else if (EntityInfo.isMappedClass(raw)) {
+            return new LazyCodec<>(raw, registry);
+        } else if (Map.class.isAssignableFrom(raw) && !Bson.class.isAssignableFrom(raw)) {
+            Type keyType = GenericTypes.getTypeArgument(type, Map.class, 0);
+            Type valueType = GenericTypes.getTypeArgument(type, Map.class, 1);
+            return new MapCodec(raw, GenericTypes.getRawClass(keyType), getCodecForGenericType(valueType, stringCodec));
+        } else if (Collection.class.isAssignableFrom(raw)) {
+            Type elementType = GenericTypes.getTypeArgument(type, Collection.class, 0);
+            return new CollectionCodec(raw, GenericTypes.getRawClass(elementType), getCodecForGenericType(elementType, stringCodec));
+        } else if (raw.isArray() && !raw.equals(byte[].class)) {
+            Type componentType = type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : raw.getComponentType();
+            return new ArrayCodec(raw.getComponentType(), getCodecForGenericType(componentType, stringCodec));
+        }
+
+        Codec<?> codec = getCodecForType(raw);
+        return codec != null ? codec : dynamicCodec;
     }
 
     @Override
     public T generateIdIfAbsentFromDocument(T t) {
-        if (!documentHasId(t)) {
+        if (info.getIdField() != null && !documentHasId(t)) {
+            if (idGenerator == null) {
+                throw new MongoMapperException("No id generator for class " + info.getEntityName() + ". Set id before insert or use GeneratedId.");
+            }
             info.setId(t, idGenerator.generate());
         }
+        String versionField = info.getVersionField();
+        if (versionField != null && info.getValue(t, versionField) == null) {
+            // Called by driver before insert, new documents start with version zero.
+            info.setValue(t, versionField, info.getFieldType(versionField) == Integer.class ? (Object) 0 : (Object) 0L);
+        }
         return t;
     }
 
@@ -45,6 +179,10 @@ class EntityCodec<T> implements CollectibleCodec<T> {
     public boolean documentHasId(T t) {
         if (info.getIdField() != null) {
             Object id = info.getId(t);
+            if (id instanceof Number && info.getIdType().isPrimitive()) {
+                // Primitive id cannot be null, zero is used as missing id.
+                return ((Number) id).longValue() != 0;
+            }
             return (id != null);
         }
         return false;
@@ -53,181 +191,367 @@ class EntityCodec<T> implements CollectibleCodec<T> {
     @Override
     public BsonValue getDocumentId(T t) {
         Object id = info.getId(t);
-        ObjectId documentId;
+        if (id == null) {
+            throw new MongoMapperException("Entity of class " + info.getEntityName() + " has no id.");
+        }
+        return toBsonId(id);
+    }
+
+    private BsonValue toBsonId(Object id) {
         if (id instanceof ObjectId) {
-            documentId = (ObjectId) id;
+            return new BsonObjectId((ObjectId) id);
         } else if (id instanceof String) {
-            documentId = new ObjectId((String) id);
-        } else {
-            throw new MongoMapperException("Id can be the type of ObjectId or String.");
+            return new BsonString((String) id);
+        } else if (id instanceof Long) {
+            return new BsonInt64((Long) id);
+        } else if (id instanceof Integer) {
+            return new BsonInt32((Integer) id);
+        } else if (id instanceof UUID) {
+            return uuidToBinary((UUID) id);
         }
-        return new BsonObjectId(documentId);
+
+        // Custom id type, let its codec write it. Only used by getDocumentId, encode writes custom ids directly.
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        writer.writeName(ID_FIELD);
+        getIdCodec(id).encode(writer, id, EncoderContext.builder().build());
+        writer.writeEndDocument();
+        return document.get(ID_FIELD);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Codec<Object> getIdCodec(Object id) {
+        return (Codec<Object>) (idCodec != null ? idCodec : registry.get(id.getClass()));
+    }
+
+    private static BsonBinary uuidToBinary(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (8 * (7 - i)));
+            bytes[8 + i] = (byte) (lsb >>> (8 * (7 - i)));
+        }
+        return new BsonBinary(BsonBinarySubType.UUID_STANDARD, bytes);
     }
 
     @Override
     public T decode(BsonReader bsonReader, DecoderContext decoderContext) {
-        BsonType bsonType = bsonReader.getCurrentBsonType();
-
-        if (bsonType == BsonType.NULL) {
+        if (bsonReader.getCurrentBsonType() == BsonType.NULL) {
             bsonReader.readNull();
             return null;
         }
 
-        Document document = new Document();
+        bsonReader.readStartDocument();
+        return getDocumentCodec(bsonReader).decodeFields(bsonReader, decoderContext, null, false);
+    }
+
+    @Override
+    public T decodeInto(BsonReader bsonReader, T target, DecoderContext decoderContext, boolean reuseNested) {
+        if (bsonReader.getCurrentBsonType() == BsonType.NULL) {
+            bsonReader.readNull();
+            return null;
+        }
 
         bsonReader.readStartDocument();
+        EntityCodec<T> codec = (EntityCodec<T>) getDocumentCodec(bsonReader);
+        return codec.decodeFields(bsonReader, decoderContext, target != null && target.getClass() == codec.clazz ? target : null, reuseNested);
+    }
+
+    /**
+     * @return codec of mapped class given by discriminator of current document.
+     */
+    private EntityCodec<? extends T> getDocumentCodec(BsonReader bsonReader) {
+        if (subclassCodecs.isEmpty()) {
+            return this;
+        }
+
+        String discriminator = peekDiscriminator(bsonReader);
+        if (discriminator == null || discriminator.equals(info.getDiscriminator())) {
+            return this;
+        }
+
+        EntityCodec<? extends T> codec = subclassCodecs.get(discriminator);
+        if (codec == null) {
+            throw new MongoMapperException("Unknown discriminator [" + discriminator + "] for class " + clazz.getName() + ".");
+        }
+        return codec;
+    }
+
+    /**
+     * Read discriminator of current document without consuming it. Reader must be positioned after start of document.
+     * Discriminator is written right after id, so only few elements are skipped typically.
+     */
+    private String peekDiscriminator(BsonReader bsonReader) {
+        String key = info.getDiscriminatorKey();
+        bsonReader.mark();
+        try {
+            while (bsonReader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (bsonReader.readName().equals(key) && bsonReader.getCurrentBsonType() == BsonType.STRING) {
+                    return bsonReader.readString();
+                }
+                bsonReader.skipValue();
+            }
+            return null;
+        } finally {
+            bsonReader.reset();
+        }
+    }
+
+    /**
+     * Decode fields of document whose start was already read.
+     *
+     * @param target instance to decode into, null to create new one. Properties of target missing in document are
+     *               reset, new instance keeps initial values of primitive properties.
+     */
+    private T decodeFields(BsonReader bsonReader, DecoderContext decoderContext, T target, boolean reuseNested) {
+        T t = target != null ? target : newInstance();
+        boolean[] decoded = new boolean[mappedFields.size()];
+        Object id = null;
 
         while (bsonReader.readBsonType() != BsonType.END_OF_DOCUMENT) {
             String fieldName = bsonReader.readName();
-            if (info.isMappedReference(fieldName)) {
-                // Mapped reference to other entities should be decoded recursively.
-                document.put(fieldName, registry.get(info.getFieldType(fieldName)).decode(bsonReader, decoderContext));
-            } else if (info.isMap(fieldName)) {
-                document.put(fieldName, decodeDocument(bsonReader, decoderContext, info.getMapValueType(fieldName)));
-            } else if (info.isGenericList(fieldName)) {
-                document.put(fieldName, readGenericList(bsonReader, decoderContext, info.getGenericListValueType(fieldName)));
+            if (info.isPolymorphic() && fieldName.equals(info.getDiscriminatorKey())) {
+                bsonReader.skipValue();
+            } else if (fieldName.equals(ID_FIELD) && info.getIdField() != null) {
+                if (idCodec == null || bsonReader.getCurrentBsonType() == BsonType.NULL) {
+                    id = dynamicCodec.decode(bsonReader, decoderContext);
+                } else {
+                    id = idCodec.decode(bsonReader, decoderContext);
+                }
             } else {
-                document.put(fieldName, readValue(bsonReader, decoderContext, fieldName));
+                MappedField mappedField = mappedFields.get(fieldName);
+                if (mappedField == null) {
+                    // Not mapped field, nothing to decode.
+                    bsonReader.skipValue();
+                } else if (bsonReader.getCurrentBsonType() == BsonType.NULL) {
+                    bsonReader.readNull();
+                    if (!mappedField.type.isPrimitive()) {
+                        info.setValue(t, mappedField.name, null);
+                        decoded[mappedField.index] = true;
+                    }
+                } else {
+                    Object current = reuseNested ? info.getValue(t, mappedField.name) : null;
+                    info.setValue(t, mappedField.name, decodeValue(bsonReader, decoderContext, mappedField.codec, current));
+                    decoded[mappedField.index] = true;
+                }
             }
         }
 
         bsonReader.readEndDocument();
 
-        T t;
-        try {
-            t = clazz.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            throw new MongoMapperException("Cannot create instance of class " + clazz.getName(), e);
+        // Absent id is cleared like other properties, primitive id cannot hold null and is left as it is.
+        if (info.getIdField() != null && (id != null || !info.getIdType().isPrimitive())) {
+            info.setId(t, id);
         }
 
-        for (String field : info.getFields()) {
-            if (field.equals(info.getIdField())) {
-                info.setId(t, document.get(ID_FIELD));
-            } else {
-                Object o;
-                o = document.get(field);
-
-                if (info.getFieldType(field).isEnum()) {
-                    o = o == null ? null : Enum.valueOf((Class<? extends Enum>) info.getFieldType(field), (String) o);
-                }
-                info.setValue(t, field, o);
+        for (MappedField mappedField : mappedFields.values()) {
+            if (decoded[mappedField.index]) {
+                continue;
+            }
+            if (mappedField.sparse) {
+                // Omitted empty value.
+                info.setValue(t, mappedField.name, getSparseValue(mappedField, decoderContext));
+            } else if (!mappedField.type.isPrimitive()) {
+                info.setValue(t, mappedField.name, null);
+            } else if (target != null) {
+                info.setValue(t, mappedField.name, mappedField.defaultValue);
             }
+            // Primitive fields of new instance keep their initial value.
         }
 
         return t;
     }
 
-    private <V> List<V> readGenericList(BsonReader bsonReader, DecoderContext decoderContext, Class<V> valueClazz) {
-        BsonType bsonType = bsonReader.getCurrentBsonType();
-
-        if (bsonType == BsonType.NULL) {
-            bsonReader.readNull();
-            return null;
-        }
-
-        bsonReader.readStartArray();
-        List<V> list = new ArrayList<>();
-        while (bsonReader.readBsonType() != BsonType.END_OF_DOCUMENT) {
-            Codec<V> codec = getCodecForType(valueClazz);
-            V decode;
-            if (codec != null) {
-                decode = codec.decode(bsonReader, decoderContext);
-            } else {
-                decode = (V) readValue(bsonReader, decoderContext, null);
+    /**
+     * Decode value, into current value of property if it's reusable (collection, map or embedded entity).
+     */
+    private Object decodeValue(BsonReader bsonReader, DecoderContext decoderContext, Codec<?> codec, Object current) {
+        if (current != null) {
+            BsonType bsonType = bsonReader.getCurrentBsonType();
+            if (codec instanceof CollectionCodec && bsonType == BsonType.ARRAY && clear((Collection<Object>) current)) {
+                return ((CollectionCodec) codec).decodeInto(bsonReader, decoderContext, (Collection<Object>) current);
+            } else if (codec instanceof MapCodec && bsonType == BsonType.DOCUMENT && clear((Map<Object, Object>) current)) {
+                return ((MapCodec) codec).decodeInto(bsonReader, decoderContext, (Map<Object, Object>) current);
+            } else if (codec instanceof LazyCodec && bsonType == BsonType.DOCUMENT) {
+                Codec<Object> resolved = ((LazyCodec<Object>) codec).getCodec();
+                if (resolved instanceof ReusingDecoder) {
+                    return ((ReusingDecoder<Object>) resolved).decodeInto(bsonReader, current, decoderContext, true);
+                }
             }
-            list.add(decode);
         }
-        bsonReader.readEndArray();
-        return list;
+        return codec.decode(bsonReader, decoderContext);
     }
 
-    public <V> Document decodeDocument(BsonReader bsonReader, DecoderContext decoderContext, Class<V> valueClazz) {
-        BsonType bsonType = bsonReader.getCurrentBsonType();
+    /**
+     * @return false for unmodifiable collection, which can't be reused. Empty collections are not reused, as their
+     * clear succeeds even if they are unmodifiable (e.g. {@link Collections#emptyList()}).
+     */
+    private static boolean clear(Collection<?> collection) {
+        if (collection.isEmpty()) {
+            return false;
+        }
+        try {
+            collection.clear();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
 
-        if (bsonType == BsonType.NULL) {
-            bsonReader.readNull();
-            return null;
+    private static boolean clear(Map<?, ?> map) {
+        if (map.isEmpty()) {
+            return false;
+        }
+        try {
+            map.clear();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
         }
+    }
 
-        Document document = new Document();
+    /**
+     * @return value of property with given stored name which is missing in document, i.e. empty collection, map or
+     * array or default of primitive type for sparse properties, null or default of primitive type otherwise.
+     */
+    Object getMissingValue(String storedName) {
+        MappedField mappedField = mappedFields.get(storedName);
+        return mappedField.sparse ? getSparseValue(mappedField, DecoderContext.builder().build()) : mappedField.defaultValue;
+    }
 
-        bsonReader.readStartDocument();
-        while (bsonReader.readBsonType() != BsonType.END_OF_DOCUMENT) {
-            String fieldName = bsonReader.readName();
-            Codec<V> codec = getCodecForType(valueClazz);
-            V decode;
-            if (codec != null) {
-                decode = codec.decode(bsonReader, decoderContext);
-            } else {
-                decode = (V) readValue(bsonReader, decoderContext, null);
-            }
+    /**
+     * @return empty value of sparse property, which is omitted on encode.
+     */
+    private static Object getSparseValue(MappedField mappedField, DecoderContext decoderContext) {
+        return mappedField.container ? createEmpty(mappedField.codec, decoderContext) : mappedField.defaultValue;
+    }
 
-            document.put(fieldName, decode);
-        }
+    /**
+     * @return null or default value of primitive type.
+     */
+    static Object defaultValue(Class<?> type) {
+        return PRIMITIVE_DEFAULTS.get(type);
+    }
 
-        bsonReader.readEndDocument();
-        return document;
+    /**
+     * @return true for default values of primitives and empty collections, maps and arrays.
+     */
+    private static boolean isEmpty(Object value, MappedField mappedField) {
+        if (mappedField.type.isPrimitive()) {
+            return value.equals(mappedField.defaultValue);
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        } else if (value.getClass().isArray()) {
+            return Array.getLength(value) == 0;
+        }
+        return false;
     }
 
-    @Override
-    public void encode(BsonWriter bsonWriter, T t, EncoderContext encoderContext) {
-        Document document = new Document();
+    /**
+     * @return new empty collection, map or array of declared type.
+     */
+    private static Object createEmpty(Codec<?> codec, DecoderContext decoderContext) {
+        BsonValue empty = codec instanceof MapCodec ? new BsonDocument() : new BsonArray();
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", empty));
+        reader.readStartDocument();
+        reader.readName();
+        return codec.decode(reader, decoderContext);
+    }
 
-        for (String field : info.getFields()) {
-            if (field.equals(info.getIdField())) {
-                if (documentHasId(t)) {
-                    document.put(ID_FIELD, info.getId(t));
-                }
-            } else if (info.getFieldType(field).isEnum()) {
-                Enum anEnum = (Enum) info.getValue(t, field);
-                String value = (anEnum == null) ? null : anEnum.name();
-                if (value != null || !info.isNonNull(field)) {
-                    document.put(field, value);
-                }
-            } else {
-                Object value = info.getValue(t, field);
-                if (value != null || !info.isNonNull(field)) {
-                    document.put(field, value);
-                }
-            }
+    /**
+     * @return false if given value of property with given stored name is omitted on encode, i.e. null of non-null or
+     * sparse property or empty value of sparse property.
+     */
+    boolean isWritten(String storedName, Object value) {
+        MappedField mappedField = mappedFields.get(storedName);
+        if (value == null) {
+            return !mappedField.sparse && !info.isNonNull(mappedField.name);
         }
+        return !mappedField.sparse || !isEmpty(value, mappedField);
+    }
 
-        this.documentCodec.encode(bsonWriter, document, encoderContext);
+    EntityInfo getInfo() {
+        return info;
     }
 
-    @Override
-    public Class<T> getEncoderClass() {
-        return clazz;
+    /**
+     * @return codec of property with given stored name, null for unknown names and id.
+     */
+    Codec<?> getCodecByStoredName(String storedName) {
+        MappedField mappedField = mappedFields.get(storedName);
+        return mappedField != null ? mappedField.codec : null;
     }
 
-    private Object readValue(final BsonReader reader, final DecoderContext decoderContext, String fieldName) {
-        BsonType bsonType = reader.getCurrentBsonType();
+    private T newInstance() {
+        if (clazz.isInterface()) {
+            return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, new ProjectionHandler(clazz, projectionMethods));
+        }
+        try {
+            return clazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new MongoMapperException("Cannot create instance of class " + clazz.getName(), e);
+        }
+    }
 
-        if (bsonType == BsonType.NULL) {
-            reader.readNull();
-            return null;
+    @Override
+    public void encode(BsonWriter bsonWriter, T t, EncoderContext encoderContext) {
+        if (t.getClass() != clazz) {
+            EntityCodec<? extends T> codec = subclassCodecsByClass.get(t.getClass());
+            if (codec != null) {
+                ((EntityCodec<T>) codec).encode(bsonWriter, t, encoderContext);
+                return;
+            }
         }
 
-        Codec<?> codec = null;
-        if (fieldName != null && !fieldName.equals(ID_FIELD) && info.hasField(fieldName)) {
-            // Check whether there is special codec for given field.
-            codec = getCodecForType(info.getFieldType(fieldName));
+        bsonWriter.writeStartDocument();
 
-            if (codec != null) {
-                return codec.decode(reader, decoderContext);
+        String idField = info.getIdField();
+        if (idField != null && documentHasId(t)) {
+            Object id = info.getId(t);
+            bsonWriter.writeName(ID_FIELD);
+            // Must match getDocumentId, so filters built from it find the stored document.
+            if (id instanceof String) {
+                bsonWriter.writeString((String) id);
+            } else if (idCodec != null) {
+                getIdCodec(id).encode(bsonWriter, id, encoderContext);
+            } else {
+                dynamicCodec.encode(bsonWriter, toBsonId(id), encoderContext);
             }
         }
 
-        // Fallback variant for other fields without codec from Document decoder.
-        if (bsonType == BsonType.ARRAY) {
-            return readList(reader, decoderContext);
-        } else if (bsonType == BsonType.BINARY) {
-            byte bsonSubType = reader.peekBinarySubType();
-            if (bsonSubType == BsonBinarySubType.UUID_STANDARD.getValue() || bsonSubType == BsonBinarySubType.UUID_LEGACY.getValue()) {
-                return registry.get(UUID.class).decode(reader, decoderContext);
+        if (info.isPolymorphic()) {
+            bsonWriter.writeString(info.getDiscriminatorKey(), info.getDiscriminator());
+        }
+
+        for (String field : info.getFields()) {
+            if (field.equals(idField)) {
+                continue;
+            }
+
+            String storedName = info.getStoredName(field);
+            Object value = info.getValue(t, field);
+            if (!isWritten(storedName, value)) {
+                continue;
+            }
+            if (value == null) {
+                bsonWriter.writeNull(storedName);
+                continue;
             }
+
+            bsonWriter.writeName(storedName);
+            mappedFields.get(storedName).codec.encode(bsonWriter, value, encoderContext);
         }
-        return registry.get(bsonTypeClassMap.get(bsonType)).decode(reader, decoderContext);
+
+        bsonWriter.writeEndDocument();
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return clazz;
     }
 
     private <V> Codec<V> getCodecForType(Class<V> fieldType) {
@@ -245,13 +569,28 @@ class EntityCodec<T> implements CollectibleCodec<T> {
         return null;
     }
 
-    private List<Object> readList(final BsonReader reader, final DecoderContext decoderContext) {
-        reader.readStartArray();
-        List<Object> list = new ArrayList<>();
-        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
-            list.add(readValue(reader, decoderContext, null));
+    /**
+     * Property decoded by this codec.
+     */
+    private static final class MappedField {
+        private final String name;
+        private final int index;
+        private final Class<?> type;
+        private final Codec<Object> codec;
+        private final boolean sparse;
+        // Collection, map or array, restored as empty when sparse.
+        private final boolean container;
+        // Null or default value of primitive type.
+        private final Object defaultValue;
+
+        private MappedField(String name, int index, Class<?> type, Codec<?> codec, boolean sparse) {
+            this.name = name;
+            this.index = index;
+            this.type = type;
+            this.codec = (Codec<Object>) codec;
+            this.sparse = sparse;
+            this.container = codec instanceof CollectionCodec || codec instanceof MapCodec || codec instanceof ArrayCodec;
+            this.defaultValue = defaultValue(type);
         }
-        reader.readEndArray();
-        return list;
     }
 }
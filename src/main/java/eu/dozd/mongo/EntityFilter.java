@@ -0,0 +1,988 @@
+package eu.dozd.mongo;
+
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates Mongo filter documents against entities in memory, e.g. for reads served from caches or for checking
+ * filters in tests. Filter is compiled once, paths are dotted stored names (as in the database) through embedded
+ * entities, maps, lists and arrays, e.g. {@code {"address.city": "Prague", age: {$gte: 18}}}. Entities are read by
+ * mappings of the registry.
+ *
+ * Supported operators are {@code $eq}, {@code $ne}, {@code $gt}, {@code $gte}, {@code $lt}, {@code $lte}, {@code $in},
+ * {@code $nin}, {@code $exists}, {@code $regex}, {@code $not}, {@code $and}, {@code $or} and {@code $nor}. Values
+ * are compared as the server compares them: numbers of any type by value, arrays match if any element matches, null
+ * matches both null and missing properties, while {@code $exists} is true for stored nulls. java.time values and UUIDs
+ * are compared in the form their codecs store them. Raw BSON documents can be matched as well.
+ */
+public class EntityFilter<T> implements Predicate<T> {
+    // Value of property which is not stored, e.g. unknown, null of sparse property or beyond end of array.
+    private static final Object MISSING = new Object();
+    private static final int INCOMPARABLE = Integer.MIN_VALUE;
+
+    // Kinds of numbers, which decide how numbers are compared.
+    private static final int NOT_NUMBER = 0;
+    private static final int INTEGRAL = 1;
+    private static final int FLOATING = 2;
+    private static final int DECIMAL = 3;
+
+    private final CodecRegistry registry;
+    private final Map<Class<?>, Optional<EntityCodec<Object>>> codecs = new ConcurrentHashMap<>();
+    private final Matcher matcher;
+
+    public EntityFilter(Class<T> entityClass, Bson filter) {
+        this(entityClass, filter, CodecRegistries.fromProviders(MongoMapper.getProviders()));
+    }
+
+    /**
+     * @param filter filter document, e.g. {@code BsonDocument.parse(json)} or built by {@code Filters}.
+     */
+    public EntityFilter(Class<T> entityClass, Bson filter, CodecRegistry registry) {
+        this.registry = registry;
+        this.matcher = compile(filter.toBsonDocument(BsonDocument.class, registry), entityClass);
+    }
+
+    @Override
+    public boolean test(T entity) {
+        return matcher.matches(entity);
+    }
+
+    /**
+     * @return true if raw document matches the filter.
+     */
+    public boolean matches(BsonDocument document) {
+        return matcher.matches(document);
+    }
+
+    private Matcher compile(BsonDocument filter, Class<?> entityClass) {
+        List<Matcher> matchers = new ArrayList<>();
+        for (Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("$and") || key.equals("$or") || key.equals("$nor")) {
+                List<Matcher> children = new ArrayList<>();
+                for (BsonValue child : entry.getValue().asArray()) {
+                    children.add(compile(child.asDocument(), entityClass));
+                }
+                matchers.add(key.equals("$and") ? new AndMatcher(children) : new OrMatcher(children, key.equals("$nor")));
+            } else if (key.startsWith("$")) {
+                throw new MongoMapperException("Filter operator " + key + " is not supported.");
+            } else {
+                Path path = new Path(key.split("\\."), entityClass);
+                matchers.addAll(compileConditions(path, entry.getValue(), false));
+            }
+        }
+        return matchers.size() == 1 ? matchers.get(0) : new AndMatcher(matchers);
+    }
+
+    private List<Matcher> compileConditions(Path path, BsonValue value, boolean negate) {
+        List<Matcher> matchers = new ArrayList<>();
+        if (!isOperatorDocument(value)) {
+            matchers.add(new PathMatcher(path, eq(value), negate));
+            return matchers;
+        }
+
+        BsonDocument operators = value.asDocument();
+        for (Map.Entry<String, BsonValue> entry : operators.entrySet()) {
+            BsonValue operand = entry.getValue();
+            switch (entry.getKey()) {
+                case "$eq":
+                    matchers.add(new PathMatcher(path, eq(operand), negate));
+                    break;
+                case "$ne":
+                    matchers.add(new PathMatcher(path, eq(operand), !negate));
+                    break;
+                case "$gt":
+                    matchers.add(new PathMatcher(path, range(operand, c -> c > 0), negate));
+                    break;
+                case "$gte":
+                    matchers.add(new PathMatcher(path, range(operand, c -> c >= 0), negate));
+                    break;
+                case "$lt":
+                    matchers.add(new PathMatcher(path, range(operand, c -> c < 0), negate));
+                    break;
+                case "$lte":
+                    matchers.add(new PathMatcher(path, range(operand, c -> c <= 0), negate));
+                    break;
+                case "$in":
+                    matchers.add(new PathMatcher(path, in(operand.asArray()), negate));
+                    break;
+                case "$nin":
+                    matchers.add(new PathMatcher(path, in(operand.asArray()), !negate));
+                    break;
+                case "$exists":
+                    matchers.add(new PathMatcher(path, new Condition(false, v -> v != MISSING), negate == isTrue(operand)));
+                    break;
+                case "$regex":
+                    matchers.add(new PathMatcher(path, regex(getRegex(operand, operators.get("$options"))), negate));
+                    break;
+                case "$options":
+                    break;
+                case "$not":
+                    if (operand.isRegularExpression()) {
+                        matchers.add(new PathMatcher(path, regex(operand.asRegularExpression()), !negate));
+                    } else {
+                        // Document matches unless all the conditions are met.
+                        Matcher all = new AndMatcher(compileConditions(path, operand.asDocument(), false));
+                        matchers.add(negate ? all : root -> !all.matches(root));
+                    }
+                    break;
+                default:
+                    throw new MongoMapperException("Filter operator " + entry.getKey() + " is not supported.");
+            }
+        }
+        return matchers;
+    }
+
+    /**
+     * @return expression of {@code $regex} given as string or BSON regex, options may be given by either of them.
+     */
+    private static BsonRegularExpression getRegex(BsonValue operand, BsonValue options) {
+        BsonRegularExpression expression = operand.isRegularExpression() ? operand.asRegularExpression()
+                : new BsonRegularExpression(operand.asString().getValue());
+        if (options == null) {
+            return expression;
+        } else if (!expression.getOptions().isEmpty()) {
+            throw new MongoMapperException("Regular expression options are set in both $regex and $options.");
+        }
+        return new BsonRegularExpression(expression.getPattern(), options.asString().getValue());
+    }
+
+    private static boolean isOperatorDocument(BsonValue value) {
+        return value.isDocument() && !value.asDocument().isEmpty() && value.asDocument().keySet().iterator().next().startsWith("$");
+    }
+
+    private static boolean isTrue(BsonValue value) {
+        if (value.isBoolean()) {
+            return value.asBoolean().getValue();
+        }
+        return !value.isNull() && !(value.isNumber() && value.asNumber().doubleValue() == 0);
+    }
+
+    private Condition eq(BsonValue operand) {
+        if (operand.isRegularExpression()) {
+            return regex(operand.asRegularExpression());
+        }
+        Operand expected = compileOperand(operand);
+        return new Condition(true, expected::equalTo);
+    }
+
+    private Condition in(BsonArray operands) {
+        Condition[] conditions = new Condition[operands.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = eq(operands.get(i));
+        }
+        return new Condition(true, v -> {
+            for (Condition condition : conditions) {
+                if (condition.test.test(v)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private Condition range(BsonValue operand, Predicate<Integer> accept) {
+        Operand bound = compileOperand(operand);
+        return new Condition(true, v -> {
+            int comparison = bound.compareTo(v);
+            return comparison != INCOMPARABLE && accept.test(comparison);
+        });
+    }
+
+    private static Condition regex(BsonRegularExpression expression) {
+        int flags = 0;
+        for (char option : expression.getOptions().toCharArray()) {
+            switch (option) {
+                case 'i':
+                    flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                    break;
+                case 'm':
+                    flags |= Pattern.MULTILINE;
+                    break;
+                case 's':
+                    flags |= Pattern.DOTALL;
+                    break;
+                case 'x':
+                    flags |= Pattern.COMMENTS;
+                    break;
+                default:
+                    throw new MongoMapperException("Regular expression option " + option + " is not supported.");
+            }
+        }
+        Pattern pattern = Pattern.compile(expression.getPattern(), flags);
+        return new Condition(true, v -> {
+            String string = getString(v);
+            return string != null && pattern.matcher(string).find();
+        });
+    }
+
+    /**
+     * Operand converted once to the form compared with values, so values of entities and raw documents are compared
+     * as they are.
+     */
+    private Operand compileOperand(BsonValue operand) {
+        switch (operand.getBsonType()) {
+            case NULL:
+            case UNDEFINED:
+                return NullOperand.INSTANCE;
+            case INT32:
+            case INT64:
+            case DOUBLE:
+            case DECIMAL128:
+                return new NumberOperand(operand);
+            case STRING:
+            case SYMBOL:
+                return new StringOperand(getString(operand));
+            case DATE_TIME:
+                return new DateOperand(operand.asDateTime().getValue());
+            case BINARY:
+                return isUuid(operand) ? new UuidOperand(operand.asBinary()) : new ValueOperand(operand);
+            case BOOLEAN:
+                return new ValueOperand(operand.asBoolean().getValue());
+            case OBJECT_ID:
+                return new ValueOperand(operand.asObjectId().getValue());
+            case DOCUMENT:
+                return new DocumentOperand(operand.asDocument());
+            case ARRAY:
+                return new ArrayOperand(operand.asArray());
+            default:
+                return new ValueOperand(operand);
+        }
+    }
+
+    /**
+     * @return codec of class mapped by the registry, null for other classes.
+     */
+    @SuppressWarnings("unchecked")
+    private EntityCodec<Object> getEntityCodec(Class<?> clazz) {
+        Optional<EntityCodec<Object>> codec = codecs.get(clazz);
+        if (codec == null) {
+            try {
+                Codec<?> found = registry.get(clazz);
+                codec = found instanceof EntityCodec ? Optional.of((EntityCodec<Object>) found) : Optional.empty();
+            } catch (CodecConfigurationException e) {
+                codec = Optional.empty();
+            }
+            codecs.put(clazz, codec);
+        }
+        return codec.orElse(null);
+    }
+
+    /**
+     * @return value encoded by its codec in the registry, e.g. BSON date of java.time values.
+     */
+    @SuppressWarnings("unchecked")
+    private BsonValue encode(Object value) {
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        writer.writeName("value");
+        ((Codec<Object>) registry.get(value.getClass())).encode(writer, value, EncoderContext.builder().build());
+        writer.writeEndDocument();
+        return document.get("value");
+    }
+
+    private UUID toUuid(BsonBinary binary) {
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("value", binary));
+        reader.readStartDocument();
+        reader.readBsonType();
+        reader.skipName();
+        return registry.get(UUID.class).decode(reader, DecoderContext.builder().build());
+    }
+
+    private static boolean isUuid(Object value) {
+        if (!(value instanceof BsonBinary)) {
+            return false;
+        }
+        BsonBinary binary = (BsonBinary) value;
+        return (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue() || binary.getType() == BsonBinarySubType.UUID_LEGACY.getValue())
+                && binary.getData().length == 16;
+    }
+
+    /**
+     * @return value of property as the codec stores it: {@link #MISSING} for omitted values, ids of custom types in
+     * their BSON form.
+     */
+    private static Object getStoredValue(EntityCodec<Object> codec, Object entity, String field) {
+        EntityInfo info = codec.getInfo();
+        if (field.equals(info.getIdField())) {
+            if (!codec.documentHasId(entity)) {
+                return MISSING;
+            }
+            Object id = info.getId(entity);
+            return id instanceof String || id instanceof ObjectId || id instanceof Number ? id : codec.getDocumentId(entity);
+        }
+        Object value = info.getValue(entity, field);
+        return codec.isWritten(info.getStoredName(field), value) ? value : MISSING;
+    }
+
+    private static boolean isNull(Object value) {
+        return value == null || value == MISSING || value instanceof BsonNull || value instanceof BsonUndefined;
+    }
+
+    private static boolean isArray(Object value) {
+        return value instanceof Collection || (value != null && value.getClass().isArray() && !(value instanceof byte[]));
+    }
+
+    /**
+     * @return string of strings, symbols, characters and enums (stored by name), null for other values.
+     */
+    private static String getString(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        } else if (value instanceof BsonString) {
+            return ((BsonString) value).getValue();
+        } else if (value instanceof BsonSymbol) {
+            return ((BsonSymbol) value).getSymbol();
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        } else if (value instanceof Character) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    /**
+     * @return string form of map key, as {@link MapKeyCodec} stores it.
+     */
+    private static String getKey(Object key) {
+        String string = getString(key);
+        return string != null ? string : String.valueOf(key);
+    }
+
+    private static int getNumberKind(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BsonInt32 || value instanceof BsonInt64) {
+            return INTEGRAL;
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return DECIMAL;
+        } else if (value instanceof BsonDecimal128) {
+            return ((BsonDecimal128) value).getValue().isFinite() ? DECIMAL : FLOATING;
+        } else if (value instanceof Number || value instanceof BsonDouble) {
+            return FLOATING;
+        }
+        return NOT_NUMBER;
+    }
+
+    private static long getLong(Object value) {
+        return value instanceof BsonNumber ? ((BsonNumber) value).longValue() : ((Number) value).longValue();
+    }
+
+    private static double getDouble(Object value) {
+        if (value instanceof BsonDecimal128) {
+            Decimal128 decimal = ((BsonDecimal128) value).getValue();
+            if (decimal.isNaN()) {
+                return Double.NaN;
+            } else if (decimal.isInfinite()) {
+                return decimal.isNegative() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+        }
+        return value instanceof BsonNumber ? ((BsonNumber) value).doubleValue() : ((Number) value).doubleValue();
+    }
+
+    private static BigDecimal getDecimal(Object value, int kind) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof BsonDecimal128) {
+            return ((BsonDecimal128) value).getValue().bigDecimalValue();
+        }
+        return kind == INTEGRAL ? BigDecimal.valueOf(getLong(value)) : BigDecimal.valueOf(getDouble(value));
+    }
+
+    /**
+     * @return result of comparison of numbers of any representation or {@link #INCOMPARABLE} for other values.
+     */
+    private static int compareNumbers(Object value, Object bound, int boundKind) {
+        int kind = getNumberKind(value);
+        if (kind == NOT_NUMBER) {
+            return INCOMPARABLE;
+        } else if (kind == INTEGRAL && boundKind == INTEGRAL) {
+            return Long.compare(getLong(value), getLong(bound));
+        } else if ((kind == DECIMAL || boundKind == DECIMAL) && Double.isFinite(getDouble(value)) && Double.isFinite(getDouble(bound))) {
+            return getDecimal(value, kind).compareTo(getDecimal(bound, boundKind));
+        }
+        return Double.compare(getDouble(value), getDouble(bound));
+    }
+
+    private static boolean isDate(Object value) {
+        return value instanceof Date || value instanceof Instant || value instanceof BsonDateTime;
+    }
+
+    private static long getTime(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        }
+        return ((BsonDateTime) value).getValue();
+    }
+
+    private interface Matcher {
+        boolean matches(Object root);
+    }
+
+    private static class AndMatcher implements Matcher {
+        private final Matcher[] matchers;
+
+        private AndMatcher(List<Matcher> matchers) {
+            this.matchers = matchers.toArray(new Matcher[0]);
+        }
+
+        @Override
+        public boolean matches(Object root) {
+            for (Matcher matcher : matchers) {
+                if (!matcher.matches(root)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class OrMatcher implements Matcher {
+        private final Matcher[] matchers;
+        private final boolean negate;
+
+        private OrMatcher(List<Matcher> matchers, boolean negate) {
+            this.matchers = matchers.toArray(new Matcher[0]);
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean matches(Object root) {
+            for (Matcher matcher : matchers) {
+                if (matcher.matches(root)) {
+                    return !negate;
+                }
+            }
+            return negate;
+        }
+    }
+
+    /**
+     * Test of single value.
+     */
+    private static class Condition {
+        // Arrays match if any of their elements matches.
+        private final boolean elementwise;
+        private final Predicate<Object> test;
+
+        private Condition(boolean elementwise, Predicate<Object> test) {
+            this.elementwise = elementwise;
+            this.test = test;
+        }
+    }
+
+    /**
+     * Compiled operand compared with values of entities (Java types) and raw documents (BSON values).
+     */
+    private interface Operand {
+        boolean equalTo(Object value);
+
+        /**
+         * @return result of comparison of value with the operand or {@link #INCOMPARABLE} for values of different
+         * types, which never match ranges.
+         */
+        default int compareTo(Object value) {
+            return INCOMPARABLE;
+        }
+    }
+
+    private static class NullOperand implements Operand {
+        private static final NullOperand INSTANCE = new NullOperand();
+
+        @Override
+        public boolean equalTo(Object value) {
+            return isNull(value);
+        }
+    }
+
+    private static class NumberOperand implements Operand {
+        private final BsonValue number;
+        private final int kind;
+
+        private NumberOperand(BsonValue number) {
+            this.number = number;
+            this.kind = getNumberKind(number);
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            return compareTo(value) == 0;
+        }
+
+        @Override
+        public int compareTo(Object value) {
+            return compareNumbers(value, number, kind);
+        }
+    }
+
+    private static class StringOperand implements Operand {
+        private final String string;
+
+        private StringOperand(String string) {
+            this.string = string;
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            return string.equals(getString(value));
+        }
+
+        @Override
+        public int compareTo(Object value) {
+            String other = getString(value);
+            return other != null ? Integer.signum(other.compareTo(string)) : INCOMPARABLE;
+        }
+    }
+
+    /**
+     * Date, equal to dates, instants and java.time values stored as the same date.
+     */
+    private class DateOperand implements Operand {
+        private final long time;
+
+        private DateOperand(long time) {
+            this.time = time;
+        }
+
+        /**
+         * @return value as date, null for values which are not stored as dates.
+         */
+        private Object toDate(Object value) {
+            if (isDate(value)) {
+                return value;
+            } else if (value instanceof LocalDateTime || value instanceof LocalDate || value instanceof OffsetDateTime) {
+                // Local values are stored in zone of the codec.
+                BsonValue stored = encode(value);
+                return stored.isDateTime() ? stored : null;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            Object date = toDate(value);
+            return date != null && getTime(date) == time;
+        }
+
+        @Override
+        public int compareTo(Object value) {
+            Object date = toDate(value);
+            return date != null ? Long.compare(getTime(date), time) : INCOMPARABLE;
+        }
+    }
+
+    /**
+     * Binary of UUID subtype, equal to the same UUID whether it is stored in standard or legacy subtype, as UUID
+     * properties are stored in legacy subtype unlike UUID ids.
+     */
+    private class UuidOperand implements Operand {
+        private final UUID uuid;
+
+        private UuidOperand(BsonBinary binary) {
+            this.uuid = toUuid(binary);
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            if (value instanceof UUID) {
+                return uuid.equals(value);
+            } else if (isUuid(value)) {
+                return uuid.equals(toUuid((BsonBinary) value));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Booleans, ObjectIds and other BSON values, compared by equals.
+     */
+    private static class ValueOperand implements Operand {
+        private final Object expected;
+
+        private ValueOperand(Object expected) {
+            this.expected = expected;
+        }
+
+        private static Object getValue(Object value) {
+            if (value instanceof BsonBoolean) {
+                return ((BsonBoolean) value).getValue();
+            } else if (value instanceof BsonObjectId) {
+                return ((BsonObjectId) value).getValue();
+            }
+            return value;
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            return expected.equals(getValue(value));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compareTo(Object value) {
+            Object other = getValue(value);
+            if (other instanceof Comparable && other.getClass() == expected.getClass()) {
+                return Integer.signum(((Comparable<Object>) other).compareTo(expected));
+            }
+            return INCOMPARABLE;
+        }
+    }
+
+    /**
+     * Embedded document, equal to maps and entities with the same stored properties.
+     */
+    private class DocumentOperand implements Operand {
+        private final Map<String, Operand> operands = new HashMap<>();
+
+        private DocumentOperand(BsonDocument document) {
+            for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+                operands.put(entry.getKey(), compileOperand(entry.getValue()));
+            }
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            if (value instanceof Map) {
+                return equalToMap((Map<?, ?>) value);
+            } else if (!isNull(value) && !isArray(value)) {
+                EntityCodec<Object> codec = getEntityCodec(value.getClass());
+                return codec != null && equalToEntity(codec, value);
+            }
+            return false;
+        }
+
+        private boolean equalToMap(Map<?, ?> map) {
+            if (map.size() != operands.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Operand operand = operands.get(getKey(entry.getKey()));
+                if (operand == null || !operand.equalTo(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares stored properties of entity, so the entity is not encoded.
+         */
+        private boolean equalToEntity(EntityCodec<Object> codec, Object entity) {
+            EntityInfo info = codec.getInfo();
+            int stored = 0;
+            if (info.isPolymorphic()) {
+                Operand operand = operands.get(info.getDiscriminatorKey());
+                if (operand == null || !operand.equalTo(info.getDiscriminator())) {
+                    return false;
+                }
+                stored++;
+            }
+            for (String field : info.getFields()) {
+                Object value = getStoredValue(codec, entity, field);
+                if (value == MISSING) {
+                    continue;
+                }
+                Operand operand = operands.get(info.getStoredName(field));
+                if (operand == null || !operand.equalTo(value)) {
+                    return false;
+                }
+                stored++;
+            }
+            return stored == operands.size();
+        }
+    }
+
+    private class ArrayOperand implements Operand {
+        private final Operand[] operands;
+
+        private ArrayOperand(BsonArray array) {
+            operands = new Operand[array.size()];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = compileOperand(array.get(i));
+            }
+        }
+
+        @Override
+        public boolean equalTo(Object value) {
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                if (list.size() != operands.length) {
+                    return false;
+                }
+                for (int i = 0; i < operands.length; i++) {
+                    if (!operands[i].equalTo(list.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                if (collection.size() != operands.length) {
+                    return false;
+                }
+                int i = 0;
+                for (Object element : collection) {
+                    if (!operands[i++].equalTo(element)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (isArray(value)) {
+                if (Array.getLength(value) != operands.length) {
+                    return false;
+                }
+                for (int i = 0; i < operands.length; i++) {
+                    if (!operands[i].equalTo(Array.get(value, i))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matches if any value on path meets the condition, negated matches if none does.
+     */
+    private class PathMatcher implements Matcher {
+        private final Path path;
+        private final Condition condition;
+        private final boolean negate;
+
+        private PathMatcher(Path path, Condition condition, boolean negate) {
+            this.path = path;
+            this.condition = condition;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean matches(Object root) {
+            return path.anyMatch(root, 0, condition) != negate;
+        }
+    }
+
+    /**
+     * Compiled path of stored names. Properties are read by accessors resolved once per class of each step.
+     */
+    private class Path {
+        private final String[] segments;
+        // Array index of each segment or -1.
+        private final int[] indexes;
+        private final List<Map<Class<?>, Accessor>> accessors = new ArrayList<>();
+
+        private Path(String[] segments, Class<?> entityClass) {
+            this.segments = segments;
+            this.indexes = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                indexes[i] = isIndex(segments[i]) ? Integer.parseInt(segments[i]) : -1;
+                accessors.add(new ConcurrentHashMap<>());
+            }
+            resolve(Collections.singletonList(entityClass), 0);
+        }
+
+        /**
+         * Resolve accessors of declared types (and their mapped subclasses), so unknown properties fail early.
+         */
+        private void resolve(List<Type> types, int step) {
+            if (step == segments.length || types.isEmpty()) {
+                return;
+            }
+
+            List<Type> next = new ArrayList<>();
+            boolean mapped = false;
+            boolean found = false;
+            for (Type type : types) {
+                Class<?> raw = GenericTypes.getRawClass(type);
+                if (raw.isArray() || Collection.class.isAssignableFrom(raw)) {
+                    Type element = raw.isArray() ? raw.getComponentType() : GenericTypes.getTypeArgument(type, Collection.class, 0);
+                    // Either index of element or property of all elements.
+                    resolve(Collections.singletonList(element), indexes[step] >= 0 ? step + 1 : step);
+                    found = true;
+                } else if (Map.class.isAssignableFrom(raw)) {
+                    next.add(GenericTypes.getTypeArgument(type, Map.class, 1));
+                    found = true;
+                } else if (getEntityCodec(raw) != null) {
+                    mapped = true;
+                    EntityInfo info = getEntityCodec(raw).getInfo();
+                    List<EntityInfo> hierarchy = new ArrayList<>();
+                    hierarchy.add(info);
+                    hierarchy.addAll(info.getSubclasses().values());
+                    for (EntityInfo classInfo : hierarchy) {
+                        EntityCodec<Object> classCodec = getEntityCodec(classInfo.getEntityClass());
+                        Accessor accessor = classCodec != null ? getAccessor(classCodec, segments[step]) : Accessor.MISSING;
+                        accessors.get(step).put(classInfo.getEntityClass(), accessor);
+                        if (accessor != Accessor.MISSING) {
+                            found = true;
+                            next.add(classInfo.getGenericType(accessor.field));
+                        }
+                    }
+                } else {
+                    // Not mapped type (e.g. Object or Document), resolved at runtime.
+                    found = true;
+                }
+            }
+
+            if (mapped && !found) {
+                throw new MongoMapperException("Path " + String.join(".", segments) + " has unknown property " + segments[step] + ".");
+            }
+            resolve(next, step + 1);
+        }
+
+        private Accessor getAccessor(EntityCodec<Object> codec, String storedName) {
+            String field = codec.getInfo().getFieldByStoredName(storedName);
+            return field != null ? new Accessor(codec, field) : Accessor.MISSING;
+        }
+
+        private boolean anyMatch(Object value, int step, Condition condition) {
+            if (step == segments.length) {
+                return testValue(value, condition);
+            }
+            if (isNull(value)) {
+                return testValue(MISSING, condition);
+            }
+
+            if (isArray(value)) {
+                if (indexes[step] >= 0 && anyMatch(getElement(value, indexes[step]), step + 1, condition)) {
+                    return true;
+                }
+                // Property of embedded documents in array.
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        if (isEmbedded(element) && anyMatch(element, step, condition)) {
+                            return true;
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < Array.getLength(value); i++) {
+                        Object element = Array.get(value, i);
+                        if (isEmbedded(element) && anyMatch(element, step, condition)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            } else if (value instanceof Map) {
+                return anyMatch(getEntry((Map<?, ?>) value, segments[step]), step + 1, condition);
+            }
+
+            Accessor accessor = accessors.get(step).get(value.getClass());
+            if (accessor == null) {
+                // Scalars have no properties, they are missing accessor too.
+                EntityCodec<Object> codec = getEntityCodec(value.getClass());
+                accessor = codec != null ? getAccessor(codec, segments[step]) : Accessor.MISSING;
+                accessors.get(step).put(value.getClass(), accessor);
+            }
+            Object child = accessor == Accessor.MISSING ? MISSING : getStoredValue(accessor.codec, value, accessor.field);
+            return anyMatch(child, step + 1, condition);
+        }
+
+        private boolean isEmbedded(Object value) {
+            return !isNull(value) && (value instanceof Map || isArray(value) || getEntityCodec(value.getClass()) != null);
+        }
+
+        private boolean testValue(Object value, Condition condition) {
+            if (condition.test.test(value)) {
+                return true;
+            }
+            if (condition.elementwise && value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    if (condition.test.test(element)) {
+                        return true;
+                    }
+                }
+            } else if (condition.elementwise && isArray(value)) {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    if (condition.test.test(Array.get(value, i))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return element at given index of list, collection or array, missing value beyond its end.
+         */
+        private Object getElement(Object array, int index) {
+            if (array instanceof List) {
+                List<?> list = (List<?>) array;
+                return index < list.size() ? list.get(index) : MISSING;
+            } else if (array instanceof Collection) {
+                int i = 0;
+                for (Object element : (Collection<?>) array) {
+                    if (i++ == index) {
+                        return element;
+                    }
+                }
+                return MISSING;
+            }
+            return index < Array.getLength(array) ? Array.get(array, index) : MISSING;
+        }
+
+        /**
+         * @return value of given key, which can be stored null, or missing value.
+         */
+        private Object getEntry(Map<?, ?> map, String key) {
+            Object child = map.get(key);
+            if (child != null || map.containsKey(key)) {
+                return child;
+            }
+            if (!map.isEmpty() && !(map.keySet().iterator().next() instanceof String)) {
+                // Enum, number or ObjectId keys are stored as strings.
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (getKey(entry.getKey()).equals(key)) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            return MISSING;
+        }
+
+        private boolean isIndex(String segment) {
+            for (int i = 0; i < segment.length(); i++) {
+                if (!Character.isDigit(segment.charAt(i))) {
+                    return false;
+                }
+            }
+            return !segment.isEmpty();
+        }
+    }
+
+    private static class Accessor {
+        private static final Accessor MISSING = new Accessor(null, null);
+
+        private final EntityCodec<Object> codec;
+        private final String field;
+
+        private Accessor(EntityCodec<Object> codec, String field) {
+            this.codec = codec;
+            this.field = field;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package eu.dozd.mongo;
 
 import eu.dozd.mongo.annotation.*;
+import org.bson.codecs.IdGenerator;
+import org.bson.conversions.Bson;
 
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.*;
 
@@ -15,23 +19,58 @@ import java.util.*;
  * Class holding information about mapped classes and their fields.
  */
 class EntityInfo {
+    static final String DEFAULT_DISCRIMINATOR_KEY = "_t";
+
     protected final PropertyDescriptor[] descriptors;
     private final Map<String, PropertyDescriptor> fields = new HashMap<>();
+    private final Map<String, String> storedNames = new HashMap<>();
+    private final Map<String, String> fieldsByStoredName = new HashMap<>();
     private final String entityName;
     private final Map<String, Class<?>> typeCache = new HashMap<>();
     private final Class<?> clazz;
+    private final Map<String, EntityInfo> subclasses = new HashMap<>();
+    private String discriminator;
+    private String discriminatorKey = DEFAULT_DISCRIMINATOR_KEY;
+    private String versionField;
 
     EntityInfo(Class<?> clazz) {
         this.clazz = clazz;
         entityName = clazz.getCanonicalName();
         try {
-            descriptors = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+            descriptors = getDescriptors(clazz);
         } catch (IntrospectionException e) {
             throw new RuntimeException(e);
         }
         setDescriptors(Arrays.asList(descriptors));
     }
 
+    /**
+     * Introspection of interfaces (projections) skips getters of super-interfaces, so they are collected from the whole
+     * hierarchy. Default methods compute their values, they are not stored properties.
+     */
+    private static PropertyDescriptor[] getDescriptors(Class<?> clazz) throws IntrospectionException {
+        if (!clazz.isInterface()) {
+            return Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+        }
+
+        Map<String, PropertyDescriptor> descriptors = new LinkedHashMap<>();
+        collectDescriptors(clazz, descriptors);
+        return descriptors.values().toArray(new PropertyDescriptor[0]);
+    }
+
+    private static void collectDescriptors(Class<?> type, Map<String, PropertyDescriptor> descriptors) throws IntrospectionException {
+        for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+            Method getter = descriptor.getReadMethod();
+            if (getter != null && !getter.isDefault()) {
+                // Sub-interface is visited first, its redeclared getters win.
+                descriptors.putIfAbsent(descriptor.getName(), descriptor);
+            }
+        }
+        for (Class<?> superInterface : type.getInterfaces()) {
+            collectDescriptors(superInterface, descriptors);
+        }
+    }
+
     Set<String> getFields() {
         return Collections.unmodifiableSet(fields.keySet());
     }
@@ -40,10 +79,83 @@ class EntityInfo {
         return null;
     }
 
+    /**
+     * @return property annotated with {@link Version} or null.
+     */
+    String getVersionField() {
+        return versionField;
+    }
+
+    /**
+     * @return name of the property in stored documents.
+     */
+    String getStoredName(String field) {
+        String storedName = storedNames.get(field);
+        return storedName != null ? storedName : field;
+    }
+
+    /**
+     * @return property stored under given name or null if there is no such property.
+     */
+    String getFieldByStoredName(String storedName) {
+        return fieldsByStoredName.get(storedName);
+    }
+
+    void setStoredName(String field, String storedName) {
+        String other = fieldsByStoredName.get(storedName);
+        if (other != null && !other.equals(field)) {
+            throw new MongoMapperException("Properties [" + other + "] and [" + field + "] in class [" + getEntityName() + "] are stored with the same name [" + storedName + "].");
+        }
+
+        String previous = storedNames.put(field, storedName);
+        if (previous != null) {
+            fieldsByStoredName.remove(previous);
+        }
+        fieldsByStoredName.put(storedName, field);
+    }
+
     String getEntityName() {
         return entityName;
     }
 
+    Class<?> getEntityClass() {
+        return clazz;
+    }
+
+    /**
+     * @return stored type key of this class or null if the class is not part of mapped class hierarchy.
+     */
+    String getDiscriminator() {
+        return discriminator;
+    }
+
+    String getDiscriminatorKey() {
+        return discriminatorKey;
+    }
+
+    boolean isPolymorphic() {
+        return discriminator != null;
+    }
+
+    /**
+     * @return all mapped subclasses (direct and indirect) by their discriminator.
+     */
+    Map<String, EntityInfo> getSubclasses() {
+        return Collections.unmodifiableMap(subclasses);
+    }
+
+    void setDiscriminator(String discriminatorKey, String discriminator) {
+        this.discriminatorKey = discriminatorKey;
+        this.discriminator = discriminator;
+    }
+
+    void addSubclass(EntityInfo subclass) {
+        EntityInfo previous = subclasses.put(subclass.getDiscriminator(), subclass);
+        if (previous != null && previous != subclass) {
+            throw new MongoMapperException("Discriminator [" + subclass.getDiscriminator() + "] is used by both " + previous.getEntityName() + " and " + subclass.getEntityName() + ".");
+        }
+    }
+
     boolean isMappedReference(String field) {
         if (!fields.containsKey(field)) {
             return false;
@@ -58,73 +170,56 @@ class EntityInfo {
             return false;
         }
 
-        PropertyDescriptor pd = getField(field);
-        return pd.getPropertyType().equals(Map.class);
+        // Documents have their own codecs.
+        Class<?> type = getField(field).getPropertyType();
+        return Map.class.isAssignableFrom(type) && !Bson.class.isAssignableFrom(type);
     }
 
-    boolean isNonNull(String field) {
-        if (!fields.containsKey(field)) {
-            return false;
-        }
-
-        if (clazz.isAnnotationPresent(NonNull.class)) {
+    /**
+     * @return true for classes handled by {@link MapperCodecProvider}.
+     */
+    static boolean isMappedClass(Class<?> type) {
+        if (type.isAnnotationPresent(Entity.class) || type.isAnnotationPresent(Embedded.class) || type.isAnnotationPresent(Projection.class)) {
             return true;
         }
-
-        try {
-            if (clazz.getDeclaredField(field).isAnnotationPresent(NonNull.class)) {
+        for (Annotation annotation : type.getDeclaredAnnotations()) {
+            if (annotation.annotationType().getName().equals("org.springframework.data.mongodb.core.mapping.Document")) {
                 return true;
             }
-        } catch (NoSuchFieldException e) {
-            return false;
         }
-
-        PropertyDescriptor pd = getField(field);
-        return pd.getPropertyType().isAnnotationPresent(NonNull.class);
+        return false;
     }
 
-    boolean isGenericList(String field) {
-        if (!fields.containsKey(field)) {
-            return false;
+    /**
+     * @return true if empty values of property are not stored, by {@link Sparse} on property or on class.
+     */
+    boolean isSparse(String field) {
+        Sparse sparse = getAnnotation(field, Sparse.class);
+        if (sparse == null) {
+            sparse = clazz.getAnnotation(Sparse.class);
         }
-
-        PropertyDescriptor pd = getField(field);
-        if (!pd.getPropertyType().equals(List.class)) {
-            return false;
-        }
-        Type type = pd.getReadMethod().getGenericReturnType();
-        return (type instanceof ParameterizedType);
+        return sparse != null && sparse.value();
     }
 
-    Class<?> getGenericListValueType(String fieldName) {
-        if (!fields.containsKey(fieldName)) {
-            throw new IllegalArgumentException("Field " + fieldName + " not found.");
+    boolean isNonNull(String field) {
+        if (!fields.containsKey(field)) {
+            return false;
         }
 
-        if (!isGenericList(fieldName)) {
-            throw new MongoMapperException("Field " + fieldName + " is not a generic list.");
+        if (clazz.isAnnotationPresent(NonNull.class)) {
+            return true;
         }
 
-        if (typeCache.containsKey(fieldName)) {
-            return typeCache.get(fieldName);
+        Field declaredField = findDeclaredField(field);
+        if (declaredField == null) {
+            return false;
         }
-
-        PropertyDescriptor pd = getField(fieldName);
-        Type type = pd.getReadMethod().getGenericReturnType();
-        if (!(type instanceof ParameterizedType)) {
-            throw new MongoMapperException("Field " + fieldName + " is not a generic list.");
+        if (declaredField.isAnnotationPresent(NonNull.class)) {
+            return true;
         }
 
-        ParameterizedType pt = (ParameterizedType) type;
-        String className = pt.getActualTypeArguments()[0].getTypeName();
-
-        try {
-            Class<?> aClass = Class.forName(className);
-            typeCache.put(fieldName, aClass);
-            return aClass;
-        } catch (ClassNotFoundException e) {
-            throw new MongoMapperException("Class " + className + " not found.");
-        }
+        PropertyDescriptor pd = getField(field);
+        return pd.getPropertyType().isAnnotationPresent(NonNull.class);
     }
 
     Class<?> getMapValueType(String fieldName) {
@@ -140,26 +235,13 @@ class EntityInfo {
             return typeCache.get(fieldName);
         }
 
-        PropertyDescriptor pd = getField(fieldName);
-        Type type = pd.getReadMethod().getGenericReturnType();
-        if (!(type instanceof ParameterizedType)) {
-            throw new MongoMapperException("Field " + fieldName + " is not a parametrized map with generic type.");
-        }
-
-        ParameterizedType pt = (ParameterizedType) type;
-        String className = pt.getActualTypeArguments()[1].getTypeName();
-        int i = className.indexOf("<");
-        if (i > -1) {
-            className = className.substring(0, i);
-        }
+        Class<?> aClass = GenericTypes.getRawClass(GenericTypes.getTypeArgument(getGenericType(fieldName), Map.class, 1));
+        typeCache.put(fieldName, aClass);
+        return aClass;
+    }
 
-        try {
-            Class<?> aClass = Class.forName(className);
-            typeCache.put(fieldName, aClass);
-            return aClass;
-        } catch (ClassNotFoundException e) {
-            throw new MongoMapperException("Class " + className + " not found.");
-        }
+    Type getGenericType(String field) {
+        return getField(field).getReadMethod().getGenericReturnType();
     }
 
     Class<?> getFieldType(String field) {
@@ -172,6 +254,10 @@ class EntityInfo {
 
     void setValue(Object o, String field, Object v) {
         Method writeMethod = getField(field).getWriteMethod();
+        if (writeMethod == null && Proxy.isProxyClass(o.getClass()) && Proxy.getInvocationHandler(o) instanceof ProjectionHandler) {
+            ((ProjectionHandler) Proxy.getInvocationHandler(o)).setValue(field, v);
+            return;
+        }
         if (writeMethod == null) {
             throw new MongoMapperException("Setter for property [" + field + "] in class [" + o.getClass().getCanonicalName() + "] not found.");
         }
@@ -197,10 +283,36 @@ class EntityInfo {
     void setId(Object o, Object id) {
     }
 
+    Class<?> getIdType() {
+        return null;
+    }
+
+    IdGenerator getIdGenerator() {
+        return null;
+    }
+
     Object getId(Object o) {
         return null;
     }
 
+    /**
+     * Find field declared in mapped class or any of its superclasses.
+     */
+    Field findDeclaredField(String field) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(field);
+            } catch (NoSuchFieldException e) {
+                // Try superclass.
+            }
+        }
+        return null;
+    }
+
+    Method getReadMethod(String field) {
+        return getField(field).getReadMethod();
+    }
+
     private PropertyDescriptor getField(String field) {
         PropertyDescriptor descriptor = fields.get(field);
 
@@ -221,7 +333,48 @@ class EntityInfo {
 
             if (!"class".equals(descriptor.getName())) {
                 fields.put(descriptor.getDisplayName(), descriptor);
+                setStoredName(descriptor.getDisplayName(), findStoredName(descriptor));
+                if (findAnnotation(descriptor, Version.class) != null) {
+                    setVersionField(descriptor);
+                }
+            }
+        }
+    }
+
+    private void setVersionField(PropertyDescriptor descriptor) {
+        Class<?> type = descriptor.getPropertyType();
+        if (type != int.class && type != long.class && type != Integer.class && type != Long.class) {
+            throw new MongoMapperException("Version property [" + descriptor.getName() + "] on class [" + getEntityName() + "] must be int or long.");
+        }
+        if (versionField != null) {
+            throw new MongoMapperException("Class [" + getEntityName() + "] has more than one version property.");
+        }
+        versionField = descriptor.getDisplayName();
+    }
+
+    private String findStoredName(PropertyDescriptor descriptor) {
+        Property property = findAnnotation(descriptor, Property.class);
+        return property != null ? property.value() : descriptor.getDisplayName();
+    }
+
+    /**
+     * @return annotation of property, either on its getter or on declared field.
+     */
+    <A extends Annotation> A getAnnotation(String field, Class<A> annotationClass) {
+        return fields.containsKey(field) ? findAnnotation(getField(field), annotationClass) : null;
+    }
+
+    private <A extends Annotation> A findAnnotation(PropertyDescriptor descriptor, Class<A> annotationClass) {
+        A annotation = null;
+        if (descriptor.getReadMethod() != null) {
+            annotation = descriptor.getReadMethod().getAnnotation(annotationClass);
+        }
+        if (annotation == null) {
+            Field declaredField = findDeclaredField(descriptor.getName());
+            if (declaredField != null) {
+                annotation = declaredField.getAnnotation(annotationClass);
             }
         }
+        return annotation;
     }
 }
@@ -1,16 +1,23 @@
 package eu.dozd.mongo;
 
+import eu.dozd.mongo.annotation.GeneratedId;
 import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.id.UuidIdGenerator;
+import org.bson.codecs.IdGenerator;
+import org.bson.codecs.ObjectIdGenerator;
 import org.bson.types.ObjectId;
 
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.UUID;
 
 public class EntityInfoWithId extends EntityInfo {
 
     private final String idField;
     private final Class<?> idClass;
+    private final IdGenerator idGenerator;
 
     EntityInfoWithId(Class<?> clazz) {
         this(clazz, Id.class);
@@ -43,13 +50,57 @@ public class EntityInfoWithId extends EntityInfo {
         }
 
         idField = idColumn;
+        if (hasField(idField)) {
+            setStoredName(idField, "_id");
+        }
+        idGenerator = createIdGenerator(clazz);
+    }
+
+    private IdGenerator createIdGenerator(Class<?> clazz) {
+        if (!hasField(idField)) {
+            // Missing getter is reported when the id is accessed.
+            return null;
+        }
+
+        GeneratedId generatedId = null;
+        Method readMethod = getReadMethod(idField);
+        if (readMethod != null) {
+            generatedId = readMethod.getAnnotation(GeneratedId.class);
+        }
+        Field declaredField = findDeclaredField(idField);
+        if (generatedId == null && declaredField != null) {
+            generatedId = declaredField.getAnnotation(GeneratedId.class);
+        }
+        if (generatedId == null) {
+            generatedId = clazz.getAnnotation(GeneratedId.class);
+        }
+
+        if (generatedId != null) {
+            try {
+                return generatedId.value().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new MongoMapperException("Cannot create id generator " + generatedId.value().getName() + " for class " + clazz.getCanonicalName(), e);
+            }
+        }
+
+        // Default generators by id type.
+        Class<?> idType = getIdType();
+        if (idType.equals(String.class) || idType.equals(ObjectId.class)) {
+            return new ObjectIdGenerator();
+        } else if (idType.equals(UUID.class)) {
+            return new UuidIdGenerator();
+        }
+        return null;
     }
 
     private String findIdAnnotation(Class<?> klass) {
-        for (Field field : klass.getDeclaredFields()) {
-            for (Annotation annotation : field.getDeclaredAnnotations()) {
-                if (annotation.annotationType().equals(idClass) || annotation.annotationType().equals(javax.persistence.Id.class)) {
-                    return field.getName();
+        // Id can be declared in mapped superclass.
+        for (Class<?> c = klass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                for (Annotation annotation : field.getDeclaredAnnotations()) {
+                    if (annotation.annotationType().equals(idClass) || annotation.annotationType().equals(javax.persistence.Id.class)) {
+                        return field.getName();
+                    }
                 }
             }
         }
@@ -57,13 +108,26 @@ public class EntityInfoWithId extends EntityInfo {
     }
 
     void setId(Object o, Object id) {
-        if (getFieldType(idField).equals(String.class) && id instanceof ObjectId) {
-            setValue(o, idField, id.toString());
+        Class<?> idType = getFieldType(idField);
+        if (idType.equals(String.class) && id instanceof ObjectId) {
+            setValue(o, idField, ((ObjectId) id).toHexString());
+        } else if ((idType.equals(Long.class) || idType.equals(long.class)) && id instanceof Number) {
+            setValue(o, idField, ((Number) id).longValue());
+        } else if ((idType.equals(Integer.class) || idType.equals(int.class)) && id instanceof Number) {
+            setValue(o, idField, ((Number) id).intValue());
         } else {
             setValue(o, idField, id);
         }
     }
 
+    Class<?> getIdType() {
+        return hasField(idField) ? getFieldType(idField) : null;
+    }
+
+    IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
     Object getId(Object o) {
         return getValue(o, idField);
     }
@@ -0,0 +1,33 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Stores enums by their name.
+ */
+class EnumCodec<E extends Enum<E>> implements Codec<E> {
+    private final Class<E> clazz;
+
+    EnumCodec(Class<E> clazz) {
+        this.clazz = clazz;
+    }
+
+    @Override
+    public E decode(BsonReader reader, DecoderContext decoderContext) {
+        return Enum.valueOf(clazz, reader.readString());
+    }
+
+    @Override
+    public void encode(BsonWriter writer, E value, EncoderContext encoderContext) {
+        writer.writeString(value.name());
+    }
+
+    @Override
+    public Class<E> getEncoderClass() {
+        return clazz;
+    }
+}
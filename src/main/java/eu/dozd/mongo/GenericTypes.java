@@ -0,0 +1,102 @@
+package eu.dozd.mongo;
+
+import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for resolving generic types of mapped properties.
+ */
+final class GenericTypes {
+    private GenericTypes() {
+    }
+
+    /**
+     * @return raw class of given type. Wildcards and type variables are resolved to their upper bound.
+     */
+    static Class<?> getRawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof WildcardType) {
+            return getRawClass(((WildcardType) type).getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable) {
+            return getRawClass(((TypeVariable<?>) type).getBounds()[0]);
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(getRawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        return Object.class;
+    }
+
+    /**
+     * Resolve type arguments of {@code target} as seen from {@code type}, e.g. [String, Integer] for Map target and
+     * {@code LinkedHashMap<String, Integer>} type.
+     *
+     * @return resolved type arguments or null if the type is raw or not a subtype of target.
+     */
+    static Type[] getTypeArguments(Type type, Class<?> target) {
+        return resolve(type, target, new HashMap<TypeVariable<?>, Type>());
+    }
+
+    /**
+     * @return resolved type argument of {@code target} at given index, Object if it cannot be resolved.
+     */
+    static Type getTypeArgument(Type type, Class<?> target, int index) {
+        Type[] arguments = getTypeArguments(type, target);
+        return arguments == null ? Object.class : arguments[index];
+    }
+
+    private static Type[] resolve(Type type, Class<?> target, Map<TypeVariable<?>, Type> bindings) {
+        Class<?> raw = getRawClass(type);
+        if (!target.isAssignableFrom(raw)) {
+            return null;
+        }
+
+        if (type instanceof ParameterizedType) {
+            TypeVariable<?>[] variables = raw.getTypeParameters();
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            for (int i = 0; i < variables.length; i++) {
+                bindings.put(variables[i], substitute(arguments[i], bindings));
+            }
+        }
+
+        if (raw.equals(target)) {
+            TypeVariable<?>[] variables = target.getTypeParameters();
+            Type[] result = new Type[variables.length];
+            for (int i = 0; i < variables.length; i++) {
+                result[i] = bindings.get(variables[i]);
+                if (result[i] == null) {
+                    // Raw type usage.
+                    return null;
+                }
+            }
+            return result;
+        }
+
+        List<Type> supertypes = new ArrayList<>();
+        if (raw.getGenericSuperclass() != null) {
+            supertypes.add(raw.getGenericSuperclass());
+        }
+        for (Type genericInterface : raw.getGenericInterfaces()) {
+            supertypes.add(genericInterface);
+        }
+
+        for (Type supertype : supertypes) {
+            Type[] result = resolve(supertype, target, bindings);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static Type substitute(Type type, Map<TypeVariable<?>, Type> bindings) {
+        if (type instanceof TypeVariable && bindings.containsKey(type)) {
+            return bindings.get(type);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,152 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import eu.dozd.mongo.annotation.CompoundIndex;
+import eu.dozd.mongo.annotation.Indexed;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds index models from {@link Indexed} and {@link CompoundIndex} annotations of mapped classes. Index keys are
+ * stored paths, so they follow {@link eu.dozd.mongo.annotation.Property} names.
+ */
+class IndexDefinitions {
+    private final MapperCodecProvider provider;
+
+    IndexDefinitions(MapperCodecProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * @return indexes of collection with given entity, including properties of embedded classes and of mapped
+     * subclasses stored in the same collection.
+     */
+    List<IndexModel> getIndexes(Class<?> entityClass) {
+        EntityInfo info = provider.getEntityInfo(entityClass);
+        if (info == null) {
+            throw new MongoMapperException("Class " + entityClass.getName() + " is not mapped.");
+        }
+
+        List<EntityInfo> hierarchy = new ArrayList<>();
+        hierarchy.add(info);
+        hierarchy.addAll(info.getSubclasses().values());
+
+        List<IndexModel> indexes = new ArrayList<>();
+        for (EntityInfo classInfo : hierarchy) {
+            for (CompoundIndex compoundIndex : classInfo.getEntityClass().getAnnotationsByType(CompoundIndex.class)) {
+                indexes.add(createCompoundIndex(entityClass, compoundIndex));
+            }
+        }
+
+        Set<String> indexedPaths = new HashSet<>();
+        for (EntityInfo classInfo : hierarchy) {
+            addPropertyIndexes(entityClass, classInfo, "", new HashSet<>(), indexedPaths, indexes);
+        }
+        return indexes;
+    }
+
+    private void addPropertyIndexes(Class<?> entityClass, EntityInfo info, String prefix, Set<Class<?>> visiting,
+                                    Set<String> indexedPaths, List<IndexModel> indexes) {
+        if (!visiting.add(info.getEntityClass())) {
+            // Recursive structure, its properties are already on the path.
+            return;
+        }
+
+        List<String> fields = new ArrayList<>(info.getFields());
+        Collections.sort(fields);
+        for (String field : fields) {
+            String path = prefix + info.getStoredName(field);
+
+            Indexed indexed = info.getAnnotation(field, Indexed.class);
+            // Subclasses repeat properties of their parents.
+            if (indexed != null && indexedPaths.add(path)) {
+                indexes.add(createIndex(entityClass, path, indexed));
+            }
+
+            EntityInfo embedded = provider.getEntityInfo(getElementClass(info.getGenericType(field)));
+            if (embedded != null) {
+                addPropertyIndexes(entityClass, embedded, path + ".", visiting, indexedPaths, indexes);
+            }
+        }
+
+        visiting.remove(info.getEntityClass());
+    }
+
+    /**
+     * @return element class of collections and arrays, class itself otherwise.
+     */
+    private static Class<?> getElementClass(Type type) {
+        Class<?> raw = GenericTypes.getRawClass(type);
+        if (Collection.class.isAssignableFrom(raw)) {
+            return GenericTypes.getRawClass(GenericTypes.getTypeArgument(type, Collection.class, 0));
+        } else if (raw.isArray()) {
+            return raw.getComponentType();
+        }
+        return raw;
+    }
+
+    private IndexModel createIndex(Class<?> entityClass, String path, Indexed indexed) {
+        IndexOptions options = createOptions(entityClass, indexed.unique(), indexed.sparse(), indexed.partialFilter(), indexed.name());
+        if (indexed.expireAfterSeconds() >= 0) {
+            options.expireAfter(indexed.expireAfterSeconds(), TimeUnit.SECONDS);
+        }
+        return new IndexModel(new BsonDocument(path, new BsonInt32(indexed.descending() ? -1 : 1)), options);
+    }
+
+    private IndexModel createCompoundIndex(Class<?> entityClass, CompoundIndex compoundIndex) {
+        BsonDocument keys = new BsonDocument();
+        for (String key : compoundIndex.value()) {
+            boolean descending = key.startsWith("-");
+            String propertyPath = descending ? key.substring(1) : key;
+            keys.append(provider.getStoredPath(entityClass, propertyPath), new BsonInt32(descending ? -1 : 1));
+        }
+        return new IndexModel(keys, createOptions(entityClass, compoundIndex.unique(), compoundIndex.sparse(), compoundIndex.partialFilter(), compoundIndex.name()));
+    }
+
+    private IndexOptions createOptions(Class<?> entityClass, boolean unique, boolean sparse, String partialFilter, String name) {
+        IndexOptions options = new IndexOptions().unique(unique).sparse(sparse);
+        if (!name.isEmpty()) {
+            options.name(name);
+        }
+        if (!partialFilter.isEmpty()) {
+            options.partialFilterExpression(translateFilter(entityClass, BsonDocument.parse(partialFilter)));
+        }
+        return options;
+    }
+
+    /**
+     * @return filter with property paths replaced by stored paths, including filters nested in operators like
+     * {@code $and} and {@code $or}.
+     */
+    private BsonDocument translateFilter(Class<?> entityClass, BsonDocument filter) {
+        BsonDocument translated = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+            if (entry.getKey().startsWith("$")) {
+                translated.append(entry.getKey(), translateOperand(entityClass, entry.getValue()));
+            } else {
+                translated.append(provider.getStoredPath(entityClass, entry.getKey()), entry.getValue());
+            }
+        }
+        return translated;
+    }
+
+    private BsonValue translateOperand(Class<?> entityClass, BsonValue operand) {
+        if (operand.isDocument()) {
+            return translateFilter(entityClass, operand.asDocument());
+        } else if (operand.isArray()) {
+            BsonArray translated = new BsonArray();
+            for (BsonValue value : operand.asArray()) {
+                translated.add(translateOperand(entityClass, value));
+            }
+            return translated;
+        }
+        return operand;
+    }
+}
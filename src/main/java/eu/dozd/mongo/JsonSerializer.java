@@ -0,0 +1,54 @@
+package eu.dozd.mongo;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.json.JsonReader;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Serializes entities to extended JSON and back by their codecs, streaming directly to {@link JsonWriter} and from
+ * {@link JsonReader} without intermediate documents.
+ *
+ * Output mode is given by {@link JsonWriterSettings}, strict mode by default. Both strict and shell mode are readable.
+ */
+public class JsonSerializer {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private final CodecRegistry registry;
+    private final JsonWriterSettings settings;
+
+    public JsonSerializer(CodecRegistry registry) {
+        this(registry, new JsonWriterSettings());
+    }
+
+    public JsonSerializer(CodecRegistry registry, JsonWriterSettings settings) {
+        this.registry = registry;
+        this.settings = settings;
+    }
+
+    public String toJson(Object value) {
+        StringWriter writer = new StringWriter();
+        toJson(value, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Write value as JSON to given writer, writer is flushed but not closed.
+     */
+    public void toJson(Object value, Writer writer) {
+        Codec<Object> codec = (Codec<Object>) registry.get(value.getClass());
+        JsonWriter jsonWriter = new JsonWriter(writer, settings);
+        codec.encode(jsonWriter, value, ENCODER_CONTEXT);
+        jsonWriter.flush();
+    }
+
+    public <T> T fromJson(String json, Class<T> clazz) {
+        return registry.get(clazz).decode(new JsonReader(json), DECODER_CONTEXT);
+    }
+}
@@ -0,0 +1,46 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Codec resolved from registry on first use. Used for mapped classes which can reference each other.
+ */
+class LazyCodec<T> implements Codec<T> {
+    private final Class<T> clazz;
+    private final CodecRegistry registry;
+    private volatile Codec<T> codec;
+
+    LazyCodec(Class<T> clazz, CodecRegistry registry) {
+        this.clazz = clazz;
+        this.registry = registry;
+    }
+
+    Codec<T> getCodec() {
+        Codec<T> resolved = codec;
+        if (resolved == null) {
+            resolved = registry.get(clazz);
+            codec = resolved;
+        }
+        return resolved;
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        return getCodec().decode(reader, decoderContext);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        getCodec().encode(writer, value, encoderContext);
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return clazz;
+    }
+}
@@ -0,0 +1,141 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+
+/**
+ * Codec for map properties. Keys are converted by {@link MapKeyCodec}, values by codec of declared value type.
+ * Decoded map has declared implementation type. BSON does not store number of elements, so hash based maps are
+ * presized by size of the last decoded map of the property.
+ */
+class MapCodec implements Codec<Map<Object, Object>> {
+    private final Class<Map<Object, Object>> mapType;
+    private final MapKeyCodec keyCodec;
+    private final Codec<Object> valueCodec;
+    private final IntFunction<Map<Object, Object>> factory;
+    private volatile int sizeHint;
+
+    MapCodec(Class<?> mapType, Class<?> keyType, Codec<?> valueCodec) {
+        this.mapType = (Class<Map<Object, Object>>) mapType;
+        this.keyCodec = MapKeyCodec.forType(keyType);
+        this.valueCodec = (Codec<Object>) valueCodec;
+        this.factory = createFactory(mapType, keyType);
+    }
+
+    private static IntFunction<Map<Object, Object>> createFactory(Class<?> mapType, final Class<?> keyType) {
+        if (keyType.isEnum() && (mapType.equals(Map.class) || mapType.equals(EnumMap.class))) {
+            return size -> new EnumMap(keyType);
+        } else if (mapType.isInterface() || Modifier.isAbstract(mapType.getModifiers())) {
+            if (ConcurrentNavigableMap.class.isAssignableFrom(mapType)) {
+                return size -> new ConcurrentSkipListMap<>();
+            } else if (ConcurrentMap.class.isAssignableFrom(mapType)) {
+                return size -> new ConcurrentHashMap<>(capacity(size));
+            } else if (SortedMap.class.isAssignableFrom(mapType)) {
+                return size -> new TreeMap<>();
+            }
+            return size -> new HashMap<>(capacity(size));
+        } else if (mapType.equals(HashMap.class)) {
+            return size -> new HashMap<>(capacity(size));
+        } else if (mapType.equals(LinkedHashMap.class)) {
+            return size -> new LinkedHashMap<>(capacity(size));
+        }
+
+        final Constructor<?> constructor;
+        try {
+            constructor = mapType.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new MongoMapperException("Map type " + mapType.getName() + " has no public constructor without arguments.", e);
+        }
+        return size -> {
+            try {
+                return (Map<Object, Object>) constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new MongoMapperException("Cannot create instance of map " + constructor.getDeclaringClass().getName(), e);
+            }
+        };
+    }
+
+    static int capacity(int expectedSize) {
+        return expectedSize < 3 ? expectedSize + 1 : (int) (expectedSize / 0.75f + 1.0f);
+    }
+
+    @Override
+    public Map<Object, Object> decode(BsonReader reader, DecoderContext decoderContext) {
+        return decodeInto(reader, decoderContext, factory.apply(sizeHint));
+    }
+
+    /**
+     * Decode entries into given empty map.
+     */
+    Map<Object, Object> decodeInto(BsonReader reader, DecoderContext decoderContext, Map<Object, Object> map) {
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Object key = keyCodec.decode(reader.readName());
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                map.put(key, null);
+            } else {
+                map.put(key, valueCodec.decode(reader, decoderContext));
+            }
+        }
+        reader.readEndDocument();
+
+        sizeHint = map.size();
+        return map;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Map<Object, Object> map, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (writer instanceof CanonicalOrder && map.size() > 1 && !(map instanceof SortedMap) && !(map instanceof EnumMap)) {
+            // Iteration order of equal maps can differ, canonical encoding must not.
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                sorted.put(keyCodec.encode(entry.getKey()), entry.getValue());
+            }
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                encodeEntry(writer, entry.getKey(), entry.getValue(), encoderContext);
+            }
+        } else {
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                encodeEntry(writer, keyCodec.encode(entry.getKey()), entry.getValue(), encoderContext);
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    private void encodeEntry(BsonWriter writer, String name, Object value, EncoderContext encoderContext) {
+        writer.writeName(name);
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            encoderContext.encodeWithChildContext(valueCodec, writer, value);
+        }
+    }
+
+    Object decodeKey(String key) {
+        return keyCodec.decode(key);
+    }
+
+    Codec<Object> getValueCodec() {
+        return valueCodec;
+    }
+
+    @Override
+    public Class<Map<Object, Object>> getEncoderClass() {
+        return mapType;
+    }
+}
@@ -0,0 +1,66 @@
+package eu.dozd.mongo;
+
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Converts map keys to and from document field names.
+ */
+final class MapKeyCodec {
+    private static final MapKeyCodec STRING = new MapKeyCodec(Function.identity(), Object::toString);
+
+    private final Function<String, ?> decoder;
+    private final Function<Object, String> encoder;
+
+    private MapKeyCodec(Function<String, ?> decoder, Function<Object, String> encoder) {
+        this.decoder = decoder;
+        this.encoder = encoder;
+    }
+
+    static MapKeyCodec forType(final Class<?> keyType) {
+        if (keyType.equals(String.class) || keyType.equals(Object.class) || keyType.equals(CharSequence.class)) {
+            return STRING;
+        } else if (keyType.isEnum()) {
+            return new MapKeyCodec(s -> Enum.valueOf((Class<? extends Enum>) keyType, s), k -> ((Enum) k).name());
+        } else if (keyType.equals(Integer.class)) {
+            return new MapKeyCodec(Integer::valueOf, Object::toString);
+        } else if (keyType.equals(Long.class)) {
+            return new MapKeyCodec(Long::valueOf, Object::toString);
+        } else if (keyType.equals(Short.class)) {
+            return new MapKeyCodec(Short::valueOf, Object::toString);
+        } else if (keyType.equals(Byte.class)) {
+            return new MapKeyCodec(Byte::valueOf, Object::toString);
+        } else if (keyType.equals(Double.class)) {
+            return new MapKeyCodec(Double::valueOf, Object::toString);
+        } else if (keyType.equals(Float.class)) {
+            return new MapKeyCodec(Float::valueOf, Object::toString);
+        } else if (keyType.equals(BigInteger.class)) {
+            return new MapKeyCodec(BigInteger::new, Object::toString);
+        } else if (keyType.equals(BigDecimal.class)) {
+            return new MapKeyCodec(BigDecimal::new, k -> ((BigDecimal) k).toPlainString());
+        } else if (keyType.equals(Boolean.class)) {
+            return new MapKeyCodec(Boolean::valueOf, Object::toString);
+        } else if (keyType.equals(ObjectId.class)) {
+            return new MapKeyCodec(ObjectId::new, k -> ((ObjectId) k).toHexString());
+        } else if (keyType.equals(UUID.class)) {
+            return new MapKeyCodec(UUID::fromString, Object::toString);
+        }
+
+        // Fail only when such map is really decoded.
+        return new MapKeyCodec(s -> {
+            throw new MongoMapperException("Unsupported map key type " + keyType.getName() + ".");
+        }, Object::toString);
+    }
+
+    Object decode(String key) {
+        return decoder.apply(key);
+    }
+
+    String encode(Object key) {
+        return encoder.apply(key);
+    }
+}
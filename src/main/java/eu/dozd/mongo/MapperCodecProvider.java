@@ -1,22 +1,41 @@
 package eu.dozd.mongo;
 
+import eu.dozd.mongo.annotation.Discriminator;
 import eu.dozd.mongo.annotation.Embedded;
 import eu.dozd.mongo.annotation.Entity;
 import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.Projection;
+import eu.dozd.mongo.annotation.Property;
 import org.atteo.classindex.ClassIndex;
+import org.bson.*;
 import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecProvider;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Mongo codec provider for mapped entities. Should be passed to Mongo configuration with other providers.
  */
 public class MapperCodecProvider implements CodecProvider {
     private Map<Class, EntityInfo> entityMap = new HashMap<>();
+    // Codecs are immutable, so one instance per class is shared by all registries created with the same configuration.
+    private volatile CodecCache codecs = new CodecCache(MongoMapper.getConfigurationVersion());
 
     public MapperCodecProvider() {
         // Standard mapped classes.
@@ -31,6 +50,12 @@ public class MapperCodecProvider implements CodecProvider {
             entityMap.put(klass, info);
         }
 
+        // Read-only projections.
+        for (Class<?> klass : ClassIndex.getAnnotated(Projection.class)) {
+            EntityInfo info = new EntityInfo(klass);
+            entityMap.put(klass, info);
+        }
+
         boolean springOnClasspath;
         try {
             Class.forName("org.springframework.data.mongodb.core.mapping.Document", false, this.getClass().getClassLoader());
@@ -47,6 +72,186 @@ public class MapperCodecProvider implements CodecProvider {
                 entityMap.put(klass, info);
             }
         }
+
+        linkHierarchies();
+        resolveProjectionNames();
+    }
+
+    /**
+     * Properties of projections of mapped classes are stored with names of properties of the mapped class.
+     */
+    private void resolveProjectionNames() {
+        for (EntityInfo info : entityMap.values()) {
+            Projection projection = info.getEntityClass().getAnnotation(Projection.class);
+            if (projection == null || projection.value() == Void.class) {
+                continue;
+            }
+
+            EntityInfo source = entityMap.get(projection.value());
+            if (source == null) {
+                throw new MongoMapperException("Projection " + info.getEntityName() + " reads class " + projection.value().getName() + ", which is not mapped.");
+            }
+            for (String field : info.getFields()) {
+                if (info.getAnnotation(field, Property.class) == null && source.hasField(field)) {
+                    info.setStoredName(field, source.getStoredName(field));
+                }
+            }
+        }
+    }
+
+    /**
+     * Projection document (e.g. for {@code $project} stage or find) including only stored fields of given projection
+     * class. Fields of nested projections are included by their paths, {@code _id} is excluded unless it's mapped.
+     */
+    public BsonDocument getProjection(Class<?> projectionClass) {
+        EntityInfo info = entityMap.get(projectionClass);
+        if (info == null) {
+            throw new MongoMapperException("Class " + projectionClass.getName() + " is not mapped.");
+        }
+
+        BsonDocument projection = new BsonDocument();
+        addProjection(info, "", new HashSet<>(), projection);
+        if (!projection.containsKey("_id")) {
+            projection.append("_id", new BsonInt32(0));
+        }
+        return projection;
+    }
+
+    private void addProjection(EntityInfo info, String prefix, Set<Class<?>> visiting, BsonDocument projection) {
+        visiting.add(info.getEntityClass());
+
+        List<String> fields = new ArrayList<>(info.getFields());
+        Collections.sort(fields);
+        for (String field : fields) {
+            String path = prefix + info.getStoredName(field);
+            Class<?> type = GenericTypes.getRawClass(info.getGenericType(field));
+            EntityInfo nested = entityMap.get(type);
+            if (nested != null && type.isAnnotationPresent(Projection.class) && !visiting.contains(type)) {
+                addProjection(nested, path + ".", visiting, projection);
+            } else {
+                projection.append(path, new BsonInt32(1));
+            }
+        }
+
+        visiting.remove(info.getEntityClass());
+    }
+
+    /**
+     * Connect mapped classes with their mapped subclasses and assign discriminators to all classes in hierarchies.
+     */
+    private void linkHierarchies() {
+        for (EntityInfo info : entityMap.values()) {
+            if (info.getEntityClass().isAnnotationPresent(Projection.class)) {
+                // Projections extending mapped classes are not part of their hierarchy.
+                continue;
+            }
+            for (Class<?> c = info.getEntityClass().getSuperclass(); c != null; c = c.getSuperclass()) {
+                EntityInfo parent = entityMap.get(c);
+                if (parent != null) {
+                    assignDiscriminator(parent);
+                    assignDiscriminator(info);
+                    parent.addSubclass(info);
+                }
+            }
+        }
+    }
+
+    private void assignDiscriminator(EntityInfo info) {
+        if (info.isPolymorphic()) {
+            return;
+        }
+
+        // Key is shared by whole hierarchy, so it is read from the topmost mapped class.
+        String key = EntityInfo.DEFAULT_DISCRIMINATOR_KEY;
+        for (Class<?> c = info.getEntityClass(); c != null; c = c.getSuperclass()) {
+            Discriminator annotation = c.getAnnotation(Discriminator.class);
+            if (entityMap.containsKey(c) && annotation != null) {
+                key = annotation.key();
+            }
+        }
+
+        Discriminator annotation = info.getEntityClass().getAnnotation(Discriminator.class);
+        String value = annotation == null || annotation.value().isEmpty() ? info.getEntityClass().getSimpleName() : annotation.value();
+        info.setDiscriminator(key, value);
+    }
+
+    /**
+     * Translate dotted path of properties (e.g. {@code address.city}) to path of stored names, which can be used in
+     * filters, projections and updates. Path can go through embedded entities, collections (optionally with array
+     * index) and maps (segment after map is a key). Unknown segments are kept as they are.
+     */
+    public String getStoredPath(Class<?> clazz, String propertyPath) {
+        StringBuilder storedPath = new StringBuilder();
+        Type current = clazz;
+
+        for (String segment : propertyPath.split("\\.")) {
+            if (storedPath.length() > 0) {
+                storedPath.append('.');
+            }
+
+            Class<?> raw = GenericTypes.getRawClass(current);
+            if (Collection.class.isAssignableFrom(raw) || raw.isArray()) {
+                // Step into elements, index or positional operator is kept.
+                current = raw.isArray() ? raw.getComponentType() : GenericTypes.getTypeArgument(current, Collection.class, 0);
+                raw = GenericTypes.getRawClass(current);
+                if (isIndex(segment)) {
+                    storedPath.append(segment);
+                    continue;
+                }
+            }
+
+            if (Map.class.isAssignableFrom(raw)) {
+                storedPath.append(segment);
+                current = GenericTypes.getTypeArgument(current, Map.class, 1);
+                continue;
+            }
+
+            EntityInfo info = findInfoWithField(raw, segment);
+            if (info == null) {
+                storedPath.append(segment);
+                current = Object.class;
+            } else {
+                storedPath.append(info.getStoredName(segment));
+                current = info.getGenericType(segment);
+            }
+        }
+
+        return storedPath.toString();
+    }
+
+    private static boolean isIndex(String segment) {
+        if (segment.startsWith("$")) {
+            return true;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return !segment.isEmpty();
+    }
+
+    /**
+     * @return info of given class or of its mapped subclass with given property.
+     */
+    private EntityInfo findInfoWithField(Class<?> clazz, String field) {
+        EntityInfo info = entityMap.get(clazz);
+        if (info == null) {
+            return null;
+        }
+        if (info.hasField(field)) {
+            return info;
+        }
+        for (EntityInfo subclass : info.getSubclasses().values()) {
+            if (subclass.hasField(field)) {
+                return subclass;
+            }
+        }
+        return null;
+    }
+
+    EntityInfo getEntityInfo(Class<?> clazz) {
+        return entityMap.get(clazz);
     }
 
     @Override
@@ -58,7 +263,139 @@ public class MapperCodecProvider implements CodecProvider {
             return null;
         }
 
-        // Create codec for given class.
-        return new EntityCodec<>(clazz, info);
+        CodecCache cache = codecs;
+        int version = MongoMapper.getConfigurationVersion();
+        if (cache.version != version) {
+            // Providers, time zone or id generators changed, codecs created before are not reused.
+            cache = new CodecCache(version);
+            codecs = cache;
+        }
+
+        EntityCodec<T> codec = (EntityCodec<T>) cache.codecs.get(clazz);
+        if (codec == null) {
+            // Not computeIfAbsent, codec construction may ask registry for codecs of other classes.
+            EntityCodec<T> created = new EntityCodec<>(clazz, info);
+            codec = (EntityCodec<T>) cache.codecs.putIfAbsent(clazz, created);
+            if (codec == null) {
+                codec = created;
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Build codecs of all mapped classes and run given number of round trips of synthetic document of each class, so
+     * the first requests after start don't pay for codec construction and not yet compiled code. The document has a
+     * sample value of every property of known type (strings, numbers, dates, enums, collections, maps, arrays and
+     * embedded entities), it is decoded, encoded and decoded again. Round trips are skipped for abstract classes.
+     *
+     * @return time spent in nanoseconds by mapped class.
+     */
+    public Map<Class<?>, Long> warmUp(int iterations) {
+        Map<Class<?>, Long> times = new LinkedHashMap<>();
+        for (Class<?> clazz : entityMap.keySet()) {
+            long start = System.nanoTime();
+            warmUp(clazz, iterations);
+            times.put(clazz, System.nanoTime() - start);
+        }
+        return times;
+    }
+
+    private <T> void warmUp(Class<T> clazz, int iterations) {
+        Codec<T> codec = get(clazz, null);
+        if (!clazz.isInterface() && Modifier.isAbstract(clazz.getModifiers())) {
+            return;
+        }
+
+        BsonDocument sample = getSample(entityMap.get(clazz), new HashSet<>());
+        EncoderContext encoderContext = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+        DecoderContext decoderContext = DecoderContext.builder().build();
+        for (int i = 0; i < iterations; i++) {
+            T decoded = codec.decode(new BsonDocumentReader(sample), decoderContext);
+            if (clazz.isInterface()) {
+                // Projection interfaces are read-only.
+                continue;
+            }
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            codec.encode(new BsonBinaryWriter(buffer), decoded, encoderContext);
+            codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.getInternalBuffer(), 0, buffer.getPosition())), decoderContext);
+        }
+    }
+
+    /**
+     * @return document with sample value of every property of known type, null for classes already being sampled.
+     */
+    private BsonDocument getSample(EntityInfo info, Set<Class<?>> visiting) {
+        if (!visiting.add(info.getEntityClass())) {
+            return null;
+        }
+
+        BsonDocument sample = new BsonDocument();
+        if (info.isPolymorphic()) {
+            sample.append(info.getDiscriminatorKey(), new BsonString(info.getDiscriminator()));
+        }
+        for (String field : info.getFields()) {
+            BsonValue value = getSample(info.getGenericType(field), visiting);
+            if (value != null) {
+                sample.append(info.getStoredName(field), value);
+            }
+        }
+
+        visiting.remove(info.getEntityClass());
+        return sample;
+    }
+
+    /**
+     * @return sample value of given type, null for types without known BSON form (the property stays missing).
+     */
+    private BsonValue getSample(Type type, Set<Class<?>> visiting) {
+        Class<?> raw = GenericTypes.getRawClass(type);
+        if (raw == String.class || raw == Character.class || raw == char.class || raw == Object.class || raw == BigDecimal.class) {
+            return new BsonString("1");
+        } else if (raw == Integer.class || raw == int.class || raw == Short.class || raw == short.class || raw == Byte.class || raw == byte.class) {
+            return new BsonInt32(1);
+        } else if (raw == Long.class || raw == long.class) {
+            return new BsonInt64(1);
+        } else if (raw == Double.class || raw == double.class || raw == Float.class || raw == float.class) {
+            return new BsonDouble(1);
+        } else if (raw == Boolean.class || raw == boolean.class) {
+            return BsonBoolean.TRUE;
+        } else if (raw == Date.class || raw == Instant.class || raw == LocalDateTime.class || raw == LocalDate.class || raw == OffsetDateTime.class) {
+            return new BsonDateTime(0);
+        } else if (raw == ObjectId.class) {
+            return new BsonObjectId(new ObjectId());
+        } else if (raw == byte[].class || raw == ByteBuffer.class) {
+            return new BsonBinary(new byte[1]);
+        } else if (raw.isEnum()) {
+            Object[] constants = raw.getEnumConstants();
+            return constants.length > 0 ? new BsonString(((Enum<?>) constants[0]).name()) : null;
+        } else if (raw.isArray() || Collection.class.isAssignableFrom(raw)) {
+            Type element = raw.isArray() ? raw.getComponentType() : GenericTypes.getTypeArgument(type, Collection.class, 0);
+            BsonValue value = getSample(element, visiting);
+            return value != null ? new BsonArray(Collections.singletonList(value)) : new BsonArray();
+        } else if (Map.class.isAssignableFrom(raw) && !Bson.class.isAssignableFrom(raw)) {
+            BsonValue key = getSample(GenericTypes.getTypeArgument(type, Map.class, 0), visiting);
+            BsonValue value = getSample(GenericTypes.getTypeArgument(type, Map.class, 1), visiting);
+            BsonDocument map = new BsonDocument();
+            if (key != null && (key.isString() || key.isNumber()) && value != null) {
+                map.append(key.isString() ? key.asString().getValue() : "1", value);
+            }
+            return map;
+        }
+
+        EntityInfo info = entityMap.get(raw);
+        if (info != null && !Modifier.isAbstract(raw.getModifiers())) {
+            return getSample(info, visiting);
+        }
+        return null;
+    }
+
+    private static final class CodecCache {
+        private final int version;
+        private final Map<Class<?>, EntityCodec<?>> codecs = new ConcurrentHashMap<>();
+
+        private CodecCache(int version) {
+            this.version = version;
+        }
     }
 }
@@ -1,14 +1,22 @@
 package eu.dozd.mongo;
 
+import com.mongodb.client.model.IndexModel;
 import eu.dozd.mongo.codecs.bigdecimal.BigDecimalCodecProvider;
+import eu.dozd.mongo.codecs.time.JavaTimeCodecProvider;
+import org.bson.BsonDocument;
 import org.bson.codecs.BsonValueCodecProvider;
 import org.bson.codecs.DocumentCodecProvider;
+import org.bson.codecs.IdGenerator;
 import org.bson.codecs.ValueCodecProvider;
 import org.bson.codecs.configuration.CodecProvider;
 
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Usage:
@@ -21,19 +29,115 @@ import java.util.List;
  * If you want modify or add other providers, instantiate MapperCodecProvider directly.
  */
 public class MongoMapper {
-    private final static ArrayList<CodecProvider> providers = new ArrayList<>(Arrays.asList(
+    private final static MapperCodecProvider mapperCodecProvider = new MapperCodecProvider();
+    private static JavaTimeCodecProvider javaTimeCodecProvider = new JavaTimeCodecProvider();
+    // Replaced as a whole on change, so readers never see partially updated list.
+    private static volatile List<CodecProvider> providers = Collections.unmodifiableList(Arrays.asList(
             new ValueCodecProvider(),
             new DocumentCodecProvider(),
             new BsonValueCodecProvider(),
-            new MapperCodecProvider(),
-            new BigDecimalCodecProvider()
+            mapperCodecProvider,
+            new BigDecimalCodecProvider(),
+            javaTimeCodecProvider
     ));
 
     public static List<CodecProvider> getProviders() {
-        return (ArrayList) providers.clone();
+        return new ArrayList<>(providers);
     }
 
-    public static void addProvider(CodecProvider provider) {
-        providers.add(provider);
+    private final static Map<Class<?>, IdGenerator> idGenerators = new ConcurrentHashMap<>();
+    private final static Map<String, StringCache> stringCaches = new ConcurrentHashMap<>();
+    // Changed by every configuration call, codecs created with older configuration are not reused.
+    private static volatile int configurationVersion;
+
+    /**
+     * Add provider used by codecs of mapped classes. Codecs created before keep the previous providers, registries
+     * created afterwards get new codecs.
+     */
+    public static synchronized void addProvider(CodecProvider provider) {
+        List<CodecProvider> updated = new ArrayList<>(providers);
+        updated.add(provider);
+        providers = Collections.unmodifiableList(updated);
+        configurationVersion++;
+    }
+
+    /**
+     * Set zone used to store {@link java.time.LocalDateTime} and {@link java.time.LocalDate} values, UTC by default.
+     * Codecs created before keep the previous zone, registries created afterwards get new codecs.
+     */
+    public static synchronized void setTimeZone(ZoneId zone) {
+        JavaTimeCodecProvider provider = new JavaTimeCodecProvider(zone);
+        List<CodecProvider> updated = new ArrayList<>(providers);
+        updated.set(updated.indexOf(javaTimeCodecProvider), provider);
+        providers = Collections.unmodifiableList(updated);
+        javaTimeCodecProvider = provider;
+        configurationVersion++;
+    }
+
+    /**
+     * Set id generator for given entity class. Overrides {@link eu.dozd.mongo.annotation.GeneratedId} and default
+     * generator. Codecs created before keep the previous generator, registries created afterwards get new codecs.
+     */
+    public static synchronized void setIdGenerator(Class<?> entityClass, IdGenerator idGenerator) {
+        idGenerators.put(entityClass, idGenerator);
+        configurationVersion++;
+    }
+
+    static IdGenerator getIdGenerator(Class<?> entityClass) {
+        return idGenerators.get(entityClass);
+    }
+
+    /**
+     * @return version of providers, time zone and id generators, which codecs are created with.
+     */
+    static int getConfigurationVersion() {
+        return configurationVersion;
+    }
+
+    /**
+     * @return caches of {@link eu.dozd.mongo.annotation.Deduplicated} properties by their names, with statistics.
+     */
+    public static Map<String, StringCache> getStringCaches() {
+        return Collections.unmodifiableMap(stringCaches);
+    }
+
+    static StringCache getStringCache(String name, int size) {
+        return stringCaches.computeIfAbsent(name, n -> new StringCache(size));
+    }
+
+    /**
+     * Translate dotted property path of mapped class to path of stored names, e.g. for filters or updates.
+     *
+     * @see MapperCodecProvider#getStoredPath(Class, String)
+     */
+    public static String getStoredPath(Class<?> entityClass, String propertyPath) {
+        return mapperCodecProvider.getStoredPath(entityClass, propertyPath);
+    }
+
+    /**
+     * @return projection document with stored fields of given {@link eu.dozd.mongo.annotation.Projection} class.
+     * @see MapperCodecProvider#getProjection(Class)
+     */
+    public static BsonDocument getProjection(Class<?> projectionClass) {
+        return mapperCodecProvider.getProjection(projectionClass);
+    }
+
+    /**
+     * Index models defined by {@link eu.dozd.mongo.annotation.Indexed} and
+     * {@link eu.dozd.mongo.annotation.CompoundIndex} annotations of given entity, e.g. for
+     * {@code collection.createIndexes(MongoMapper.getIndexes(Person.class))} on deploy.
+     */
+    public static List<IndexModel> getIndexes(Class<?> entityClass) {
+        return new IndexDefinitions(mapperCodecProvider).getIndexes(entityClass);
+    }
+
+    /**
+     * Build codecs of all mapped classes and run synthetic encode/decode round trips. Call on application start.
+     *
+     * @return time spent in nanoseconds by mapped class.
+     * @see MapperCodecProvider#warmUp(int)
+     */
+    public static Map<Class<?>, Long> warmUp(int iterations) {
+        return mapperCodecProvider.warmUp(iterations);
     }
 }
@@ -0,0 +1,137 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Conditional writes of entities with {@link eu.dozd.mongo.annotation.Version} property. Write succeeds only if the
+ * stored version is the one read, so read-modify-write cycles need no locks:
+ *
+ * <pre>
+ * UpdateResult result = collection.replaceOne(locking.prepareReplace(entity), entity);
+ * locking.checkResult(entity, result);
+ *
+ * result = collection.updateOne(locking.getFilter(entity), locking.prepareUpdate(entity, update));
+ * locking.checkResult(entity, result);
+ * </pre>
+ *
+ * Prepare methods increment the version of the entity, {@link #checkResult(Object, UpdateResult)} restores it and
+ * throws {@link VersionConflictException} if no document matched. Retry by reading the entity again. If the write
+ * itself fails, the entity stays one version ahead, restore it before the entity is written again:
+ *
+ * <pre>
+ * try {
+ *     result = collection.replaceOne(locking.prepareReplace(entity), entity);
+ * } catch (MongoException e) {
+ *     locking.restoreVersion(entity);
+ *     throw e;
+ * }
+ * </pre>
+ */
+public class OptimisticLocking {
+    private final CodecRegistry registry;
+
+    public OptimisticLocking(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return filter matching id and current version of the entity.
+     */
+    public BsonDocument getFilter(Object entity) {
+        EntityCodec<Object> codec = getEntityCodec(entity);
+        EntityInfo info = codec.getInfo();
+        // Document id is in the form written by encode, e.g. String ids stay strings.
+        return new BsonDocument("_id", codec.getDocumentId(entity))
+                .append(info.getStoredName(info.getVersionField()), toBson(info.getValue(entity, info.getVersionField())));
+    }
+
+    /**
+     * Increment version of the entity to be written by replace.
+     *
+     * @return filter matching id and version before increment.
+     */
+    public BsonDocument prepareReplace(Object entity) {
+        BsonDocument filter = getFilter(entity);
+        setVersion(entity, 1);
+        return filter;
+    }
+
+    /**
+     * Increment version of the entity to match the stored one after update. Filter has to be taken by
+     * {@link #getFilter(Object)} before this call.
+     *
+     * @return copy of update with version incremented by {@code $inc}.
+     */
+    public BsonDocument prepareUpdate(Object entity, BsonDocument update) {
+        EntityInfo info = getEntityCodec(entity).getInfo();
+        String storedName = info.getStoredName(info.getVersionField());
+
+        BsonDocument result = update.clone();
+        for (BsonValue operation : result.values()) {
+            if (operation.isDocument() && operation.asDocument().containsKey(storedName)) {
+                throw new MongoMapperException("Update of " + info.getEntityName() + " must not change version property.");
+            }
+        }
+        if (!result.containsKey("$inc")) {
+            result.append("$inc", new BsonDocument());
+        }
+        result.getDocument("$inc").append(storedName, new BsonInt32(1));
+
+        setVersion(entity, 1);
+        return result;
+    }
+
+    /**
+     * Throw {@link VersionConflictException} if write prepared for the entity matched no document, version of the
+     * entity is restored in that case. Unacknowledged writes are not checked.
+     */
+    public void checkResult(Object entity, UpdateResult result) {
+        if (result.wasAcknowledged() && result.getMatchedCount() == 0) {
+            restoreVersion(entity);
+            EntityCodec<Object> codec = getEntityCodec(entity);
+            throw new VersionConflictException(entity, codec.getDocumentId(entity), codec.getInfo().getValue(entity, codec.getInfo().getVersionField()));
+        }
+    }
+
+    /**
+     * Undo increment of version by prepare method, e.g. when the write failed.
+     */
+    public void restoreVersion(Object entity) {
+        setVersion(entity, -1);
+    }
+
+    private void setVersion(Object entity, int delta) {
+        EntityInfo info = getEntityCodec(entity).getInfo();
+        String field = info.getVersionField();
+        Object version = info.getValue(entity, field);
+        if (version == null) {
+            version = 0;
+        }
+
+        if (info.getFieldType(field) == int.class || info.getFieldType(field) == Integer.class) {
+            info.setValue(entity, field, ((Number) version).intValue() + delta);
+        } else {
+            info.setValue(entity, field, ((Number) version).longValue() + delta);
+        }
+    }
+
+    private static BsonValue toBson(Object version) {
+        if (version instanceof Integer) {
+            return new BsonInt32((Integer) version);
+        } else if (version instanceof Long) {
+            return new BsonInt64((Long) version);
+        }
+        return BsonNull.VALUE;
+    }
+
+    private EntityCodec<Object> getEntityCodec(Object entity) {
+        Codec<?> codec = registry.get(entity.getClass());
+        if (!(codec instanceof EntityCodec) || ((EntityCodec<?>) codec).getInfo().getVersionField() == null) {
+            throw new MongoMapperException("Class " + entity.getClass().getName() + " is not mapped entity with version.");
+        }
+        return (EntityCodec<Object>) codec;
+    }
+}
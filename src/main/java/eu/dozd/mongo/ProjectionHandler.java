@@ -0,0 +1,87 @@
+package eu.dozd.mongo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backs instances of {@link eu.dozd.mongo.annotation.Projection} interfaces, getters return decoded values, default
+ * methods are called as they are implemented.
+ */
+class ProjectionHandler implements InvocationHandler {
+    private static final Map<Method, MethodHandle> defaultMethods = new ConcurrentHashMap<>();
+    private final Class<?> type;
+    // Properties by their getters.
+    private final Map<Method, String> fields;
+    private final Map<String, Object> values = new HashMap<>();
+
+    ProjectionHandler(Class<?> type, Map<Method, String> fields) {
+        this.type = type;
+        this.fields = fields;
+    }
+
+    void setValue(String field, Object value) {
+        values.put(field, value);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String field = fields.get(method);
+        if (field != null) {
+            Object value = values.get(field);
+            return value != null ? value : EntityCodec.defaultValue(method.getReturnType());
+        }
+        if (method.isDefault()) {
+            return getDefaultMethod(method).bindTo(proxy).invokeWithArguments(args != null ? args : new Object[0]);
+        }
+
+        switch (method.getName()) {
+            case "equals":
+                Object other = args[0];
+                return other != null && Proxy.isProxyClass(other.getClass()) && Proxy.getInvocationHandler(other) instanceof ProjectionHandler
+                        && type.equals(((ProjectionHandler) Proxy.getInvocationHandler(other)).type)
+                        && values.equals(((ProjectionHandler) Proxy.getInvocationHandler(other)).values);
+            case "hashCode":
+                return values.hashCode();
+            case "toString":
+                return type.getSimpleName() + values;
+            default:
+                throw new UnsupportedOperationException("Method " + method.getName() + " is not a property of projection " + type.getName() + ".");
+        }
+    }
+
+    private static MethodHandle getDefaultMethod(Method method) {
+        MethodHandle handle = defaultMethods.get(method);
+        if (handle == null) {
+            Class<?> type = method.getDeclaringClass();
+            try {
+                handle = getLookup(type).unreflectSpecial(method, type);
+            } catch (ReflectiveOperationException e) {
+                throw new MongoMapperException("Cannot call default method " + method.getName() + " of projection " + type.getName() + ".", e);
+            }
+            defaultMethods.put(method, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * @return lookup with private access to given interface, which calling its default methods needs. Java 9+ has
+     * privateLookupIn, Java 8 only the private constructor.
+     */
+    private static MethodHandles.Lookup getLookup(Class<?> type) throws ReflectiveOperationException {
+        try {
+            Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            return (MethodHandles.Lookup) privateLookupIn.invoke(null, type, MethodHandles.lookup());
+        } catch (NoSuchMethodException e) {
+            Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(type, MethodHandles.Lookup.PRIVATE);
+        }
+    }
+}
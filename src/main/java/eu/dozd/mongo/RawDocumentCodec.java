@@ -0,0 +1,47 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.ByteBufferBsonInput;
+
+/**
+ * Codec for {@link RawBsonDocument} properties, which are carried as bytes without decoding. From
+ * {@link SliceableBsonInput} the bytes are copied once into array of exact size, other binary inputs are copied in
+ * bulk. On encode the bytes are piped to the writer.
+ */
+class RawDocumentCodec implements Codec<RawBsonDocument> {
+
+    @Override
+    public RawBsonDocument decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader instanceof BsonBinaryReader && ((BsonBinaryReader) reader).getBsonInput() instanceof SliceableBsonInput) {
+            // Copy bytes of the document by its length prefix, then let the reader skip it.
+            SliceableBsonInput input = (SliceableBsonInput) ((BsonBinaryReader) reader).getBsonInput();
+            byte[] bytes = new byte[input.peekInt32(0)];
+            input.peekBytes(0, bytes, bytes.length);
+            reader.skipValue();
+            return new RawBsonDocument(bytes);
+        }
+
+        // Binary writer copies documents from binary reader in bulk by their length prefix.
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        new BsonBinaryWriter(buffer).pipe(reader);
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    @Override
+    public void encode(BsonWriter writer, RawBsonDocument value, EncoderContext encoderContext) {
+        writer.pipe(new BsonBinaryReader(new ByteBufferBsonInput(value.getByteBuffer())));
+    }
+
+    @Override
+    public Class<RawBsonDocument> getEncoderClass() {
+        return RawBsonDocument.class;
+    }
+}
@@ -0,0 +1,23 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonReader;
+import org.bson.codecs.DecoderContext;
+
+/**
+ * Decoder able to decode documents into existing instances, so long scans don't allocate new entity for every
+ * document. Codecs of mapped classes implement it:
+ * <pre>
+ *     ReusingDecoder&lt;Person&gt; decoder = (ReusingDecoder&lt;Person&gt;) codecRegistry.get(Person.class);
+ *     person = decoder.decodeInto(reader, person, DecoderContext.builder().build(), true);
+ * </pre>
+ */
+public interface ReusingDecoder<T> {
+    /**
+     * Decode document into target. Properties missing in document are reset to null or to default value of primitive
+     * type.
+     *
+     * @param reuseNested decode into collections, maps and embedded entities of target instead of creating new ones.
+     * @return target, or new instance when the document belongs to different mapped class than target.
+     */
+    T decodeInto(BsonReader reader, T target, DecoderContext decoderContext, boolean reuseNested);
+}
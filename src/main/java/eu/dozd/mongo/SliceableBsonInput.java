@@ -0,0 +1,89 @@
+package eu.dozd.mongo;
+
+import org.bson.ByteBuf;
+import org.bson.ByteBufNIO;
+import org.bson.RawBsonDocument;
+import org.bson.io.ByteBufferBsonInput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Input which lets {@link ByteBuffer} properties be decoded without copying and {@link StringCache} find hits
+ * without allocation, as its bytes can be read ahead without marks. In shared mode they are read-only slices
+ * of the input buffer, so the buffer must not be modified or released while decoded values are used. In copy mode
+ * the values are copied, for callers which keep them after the buffer is reused.
+ *
+ * Usage: {@code codec.decode(new BsonBinaryReader(SliceableBsonInput.of(rawDocument)), decoderContext)}.
+ */
+public class SliceableBsonInput extends ByteBufferBsonInput {
+    private final ByteBuf buffer;
+    private final boolean shared;
+
+    public SliceableBsonInput(ByteBuffer buffer) {
+        this(buffer, true);
+    }
+
+    /**
+     * @param shared true to decode binary values as slices of the buffer, false to copy them.
+     */
+    public SliceableBsonInput(ByteBuffer buffer, boolean shared) {
+        this(new ByteBufNIO(buffer), shared);
+    }
+
+    private SliceableBsonInput(ByteBuf buffer, boolean shared) {
+        super(buffer);
+        this.buffer = buffer;
+        this.shared = shared;
+    }
+
+    /**
+     * Input over bytes of raw document, which are immutable, so slices stay valid as long as they are referenced.
+     */
+    public static SliceableBsonInput of(RawBsonDocument document) {
+        return new SliceableBsonInput(document.getByteBuffer(), true);
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @return int32 at given offset from current position, position is not changed.
+     */
+    int peekInt32(int offset) {
+        return buffer.getInt(buffer.position() + offset);
+    }
+
+    /**
+     * Copy bytes from given offset from current position, position is not changed.
+     */
+    void peekBytes(int offset, byte[] bytes, int length) {
+        buffer.get(buffer.position() + offset, bytes, 0, length);
+    }
+
+    /**
+     * @return byte at given offset from current position, position is not changed.
+     */
+    byte peekByte(int offset) {
+        return buffer.get(buffer.position() + offset);
+    }
+
+    /**
+     * @return read-only view of given number of bytes from given offset from current position (in shared mode) or
+     * their copy. Position is not changed.
+     */
+    ByteBuffer slice(int offset, int length) {
+        int start = buffer.position() + offset;
+        ByteBuffer duplicate = buffer.asNIO().duplicate();
+        duplicate.position(start);
+        duplicate.limit(start + length);
+        if (shared) {
+            return duplicate.slice().asReadOnlyBuffer();
+        }
+
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        copy.put(duplicate);
+        copy.flip();
+        return copy;
+    }
+}
@@ -0,0 +1,132 @@
+package eu.dozd.mongo;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded direct-mapped cache of decoded strings. With {@link SliceableBsonInput} the stored UTF-8 bytes of short ASCII
+ * strings are compared with cached string before any String is created, so hits don't allocate. Strings from other
+ * inputs are decoded first and then deduplicated. Only short strings are cached. Entries are immutable strings so races
+ * only lead to cache misses.
+ */
+public class StringCache {
+    static final int MAX_LENGTH = 64;
+    // String object and header of its array, value bytes are added.
+    private static final int STRING_OVERHEAD = 40;
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+    private final String[] entries;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    StringCache(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        entries = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Read string value from reader, which has to be positioned on string value.
+     */
+    String read(BsonReader reader) {
+        if (!(reader instanceof BsonBinaryReader) || !(((BsonBinaryReader) reader).getBsonInput() instanceof SliceableBsonInput)) {
+            return deduplicate(reader.readString());
+        }
+
+        // Peek at the value by absolute reads, marks of the reader and input are left alone.
+        SliceableBsonInput input = (SliceableBsonInput) ((BsonBinaryReader) reader).getBsonInput();
+        int length = input.peekInt32(0) - 1;
+        if (length > MAX_LENGTH) {
+            misses.increment();
+            return reader.readString();
+        }
+        byte[] buffer = buffers.get();
+        input.peekBytes(4, buffer, length);
+
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] < 0) {
+                // Not ASCII, hash of string is not simple to get from bytes.
+                return deduplicate(reader.readString());
+            }
+            hash = 31 * hash + buffer[i];
+        }
+
+        int index = spread(hash) & mask;
+        String entry = entries[index];
+        if (entry != null && matches(entry, buffer, length)) {
+            reader.skipValue();
+            hit(entry);
+            return entry;
+        }
+
+        String value = reader.readString();
+        entries[index] = value;
+        misses.increment();
+        return value;
+    }
+
+    /**
+     * @return cached instance equal to value, value itself is cached on miss.
+     */
+    String deduplicate(String value) {
+        if (value.length() > MAX_LENGTH) {
+            misses.increment();
+            return value;
+        }
+
+        int index = spread(value.hashCode()) & mask;
+        String entry = entries[index];
+        if (value.equals(entry)) {
+            hit(entry);
+            return entry;
+        }
+        entries[index] = value;
+        misses.increment();
+        return value;
+    }
+
+    private void hit(String entry) {
+        hits.increment();
+        savedBytes.add(STRING_OVERHEAD + entry.length());
+    }
+
+    private static boolean matches(String entry, byte[] buffer, int length) {
+        if (entry.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return estimated heap bytes of strings not allocated or not retained thanks to cache hits.
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public int getSize() {
+        return entries.length;
+    }
+}
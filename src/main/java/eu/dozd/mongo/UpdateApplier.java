@@ -0,0 +1,227 @@
+package eu.dozd.mongo;
+
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies update documents to entities in memory, e.g. to keep cached replicas in sync with change events. Paths are
+ * dotted stored names (as in the database) through embedded entities, maps, lists and arrays. Only the changed values
+ * are decoded, each by codec of its property.
+ *
+ * Supported operators are {@code $set} and {@code $unset}. Missing embedded entities, maps and lists on the path are
+ * created, unknown stored names are ignored.
+ */
+public class UpdateApplier {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private final CodecRegistry registry;
+
+    public UpdateApplier(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Apply update document, e.g. {@code {$set: {"address.city": "Prague"}, $unset: {"note": ""}}}.
+     */
+    public void apply(Object entity, BsonDocument update) {
+        for (Map.Entry<String, BsonValue> operator : update.entrySet()) {
+            if (operator.getKey().equals("$set")) {
+                for (Map.Entry<String, BsonValue> entry : operator.getValue().asDocument().entrySet()) {
+                    set(entity, entry.getKey(), entry.getValue());
+                }
+            } else if (operator.getKey().equals("$unset")) {
+                for (String path : operator.getValue().asDocument().keySet()) {
+                    unset(entity, path);
+                }
+            } else {
+                throw new MongoMapperException("Update operator " + operator.getKey() + " is not supported.");
+            }
+        }
+    }
+
+    /**
+     * Set value on given stored path, e.g. from updated fields of change event.
+     */
+    public void set(Object entity, String path, BsonValue value) {
+        apply(entity, getEntityCodec(entity), path.split("\\."), 0, value);
+    }
+
+    /**
+     * Remove value on given stored path, properties are set to null (or default of primitive type, or empty collection
+     * or map for {@link eu.dozd.mongo.annotation.Sparse} properties), map entries are removed and list elements are set
+     * to null.
+     */
+    public void unset(Object entity, String path) {
+        apply(entity, getEntityCodec(entity), path.split("\\."), 0, null);
+    }
+
+    /**
+     * @param container entity, map, list or array handled by given codec.
+     * @param value     new value, null for unset.
+     */
+    private void apply(Object container, Codec<?> codec, String[] segments, int index, BsonValue value) {
+        String segment = segments[index];
+        boolean last = index == segments.length - 1;
+
+        if (codec instanceof EntityCodec) {
+            EntityCodec<?> entityCodec = (EntityCodec<?>) codec;
+            EntityInfo info = entityCodec.getInfo();
+            String field = info.getFieldByStoredName(segment);
+            if (segment.equals("_id") && field != null) {
+                throw new MongoMapperException("Id of entity can't be updated.");
+            }
+            Codec<?> fieldCodec = entityCodec.getCodecByStoredName(segment);
+            if (fieldCodec == null) {
+                // Not mapped field or discriminator.
+                return;
+            }
+
+            if (last) {
+                if (value == null) {
+                    // Same as decoding of document without the property.
+                    info.setValue(container, field, entityCodec.getMissingValue(segment));
+                    return;
+                }
+                Object decoded = decode(fieldCodec, value);
+                info.setValue(container, field, decoded == null ? EntityCodec.defaultValue(info.getFieldType(field)) : decoded);
+                return;
+            }
+            Object child = info.getValue(container, field);
+            if (child == null) {
+                if (value == null) {
+                    return;
+                }
+                child = createEmpty(fieldCodec);
+                info.setValue(container, field, child);
+            }
+            apply(child, resolve(child, fieldCodec), segments, index + 1, value);
+        } else if (codec instanceof MapCodec) {
+            MapCodec mapCodec = (MapCodec) codec;
+            Map<Object, Object> map = (Map<Object, Object>) container;
+            Object key = mapCodec.decodeKey(segment);
+
+            if (last) {
+                if (value == null) {
+                    map.remove(key);
+                } else {
+                    map.put(key, decode(mapCodec.getValueCodec(), value));
+                }
+                return;
+            }
+            Object child = map.get(key);
+            if (child == null) {
+                if (value == null) {
+                    return;
+                }
+                child = createEmpty(mapCodec.getValueCodec());
+                map.put(key, child);
+            }
+            apply(child, resolve(child, mapCodec.getValueCodec()), segments, index + 1, value);
+        } else if (codec instanceof CollectionCodec && container instanceof List) {
+            Codec<Object> elementCodec = ((CollectionCodec) codec).getElementCodec();
+            List<Object> list = (List<Object>) container;
+            int position = parseIndex(segments, index);
+            if (position >= list.size() && value == null) {
+                return;
+            }
+            while (list.size() <= position) {
+                // Same as MongoDB, list is padded with nulls.
+                list.add(null);
+            }
+
+            if (last) {
+                list.set(position, value == null ? null : decode(elementCodec, value));
+                return;
+            }
+            Object child = list.get(position);
+            if (child == null) {
+                if (value == null) {
+                    return;
+                }
+                child = createEmpty(elementCodec);
+                list.set(position, child);
+            }
+            apply(child, resolve(child, elementCodec), segments, index + 1, value);
+        } else if (codec instanceof ArrayCodec) {
+            Codec<Object> elementCodec = ((ArrayCodec) codec).getElementCodec();
+            int position = parseIndex(segments, index);
+            if (position >= Array.getLength(container)) {
+                throw new MongoMapperException("Index " + position + " of path " + String.join(".", segments) + " is out of array bounds.");
+            }
+
+            Class<?> componentType = container.getClass().getComponentType();
+            if (last) {
+                Object decoded = value == null ? null : decode(elementCodec, value);
+                Array.set(container, position, decoded == null ? EntityCodec.defaultValue(componentType) : decoded);
+                return;
+            }
+            Object child = Array.get(container, position);
+            if (child == null) {
+                if (value == null) {
+                    return;
+                }
+                child = createEmpty(elementCodec);
+                Array.set(container, position, child);
+            }
+            apply(child, resolve(child, elementCodec), segments, index + 1, value);
+        } else {
+            throw new MongoMapperException("Cannot apply path " + String.join(".", segments) + ", value of " + segment + " is " + container.getClass().getName() + ".");
+        }
+    }
+
+    private EntityCodec<?> getEntityCodec(Object entity) {
+        Codec<?> codec = registry.get(entity.getClass());
+        if (!(codec instanceof EntityCodec)) {
+            throw new MongoMapperException("Class " + entity.getClass().getName() + " is not mapped.");
+        }
+        return (EntityCodec<?>) codec;
+    }
+
+    /**
+     * @return codec of value, mapped entities are handled by codec of their runtime class (it may be subclass).
+     */
+    private Codec<?> resolve(Object value, Codec<?> codec) {
+        if (EntityInfo.isMappedClass(value.getClass())) {
+            return registry.get(value.getClass());
+        } else if (codec instanceof LazyCodec) {
+            return ((LazyCodec<?>) codec).getCodec();
+        }
+        return codec;
+    }
+
+    /**
+     * @return new empty entity, map or list decoded by given codec.
+     */
+    private static Object createEmpty(Codec<?> codec) {
+        Codec<?> resolved = codec instanceof LazyCodec ? ((LazyCodec<?>) codec).getCodec() : codec;
+        if (resolved instanceof CollectionCodec || resolved instanceof ArrayCodec) {
+            return decode(resolved, new BsonArray());
+        }
+        return decode(resolved, new BsonDocument());
+    }
+
+    private static int parseIndex(String[] segments, int index) {
+        try {
+            return Integer.parseInt(segments[index]);
+        } catch (NumberFormatException e) {
+            throw new MongoMapperException("Segment " + segments[index] + " of path " + String.join(".", segments) + " is not array index.", e);
+        }
+    }
+
+    private static Object decode(Codec<?> codec, BsonValue value) {
+        if (value.isNull()) {
+            return null;
+        }
+
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", value));
+        reader.readStartDocument();
+        reader.readBsonType();
+        reader.readName();
+        return codec.decode(reader, DECODER_CONTEXT);
+    }
+}
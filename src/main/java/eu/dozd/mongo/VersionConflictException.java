@@ -0,0 +1,32 @@
+package eu.dozd.mongo;
+
+/**
+ * Entity was changed or removed by another writer since it was read.
+ *
+ * @see OptimisticLocking
+ */
+public class VersionConflictException extends MongoMapperException {
+    private static final long serialVersionUID = 1L;
+
+    // Entities need not be serializable.
+    private final transient Object entity;
+    private final Object expectedVersion;
+
+    public VersionConflictException(Object entity, Object id, Object expectedVersion) {
+        super("Entity of class " + entity.getClass().getName() + " with id " + id + " is not in version " + expectedVersion
+                + ", it was changed or removed concurrently.");
+        this.entity = entity;
+        this.expectedVersion = expectedVersion;
+    }
+
+    /**
+     * @return entity which failed to be written, its version is the one read. Null after deserialization.
+     */
+    public Object getEntity() {
+        return entity;
+    }
+
+    public Object getExpectedVersion() {
+        return expectedVersion;
+    }
+}
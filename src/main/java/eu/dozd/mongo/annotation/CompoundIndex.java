@@ -0,0 +1,36 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Index on multiple properties of annotated entity.
+ *
+ * @see eu.dozd.mongo.MongoMapper#getIndexes(Class)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(CompoundIndexes.class)
+public @interface CompoundIndex {
+    /**
+     * Property paths in index order, prefixed with '-' for descending order, e.g. {@code {"lastName", "-age"}}.
+     */
+    String[] value();
+
+    boolean unique() default false;
+
+    boolean sparse() default false;
+
+    /**
+     * Filter of partial index in JSON, e.g. {@code {"active": true}}. Keys are property paths.
+     */
+    String partialFilter() default "";
+
+    /**
+     * Name of index, generated by server if empty.
+     */
+    String name() default "";
+}
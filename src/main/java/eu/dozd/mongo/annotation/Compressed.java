@@ -0,0 +1,24 @@
+package eu.dozd.mongo.annotation;
+
+import eu.dozd.mongo.codecs.compression.Compressor;
+import eu.dozd.mongo.codecs.compression.DeflateCompressor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores String or byte[] property compressed when it's larger than threshold. Values stored without compression
+ * are still readable, so the annotation can be added to existing data.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Compressed {
+    /**
+     * Minimal size of value in bytes (UTF-8 for strings) to be compressed.
+     */
+    int threshold() default 1024;
+
+    Class<? extends Compressor> compressor() default DeflateCompressor.class;
+}
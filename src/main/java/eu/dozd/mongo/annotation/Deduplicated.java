@@ -0,0 +1,24 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Decoded strings of annotated property (String or container of strings) are deduplicated by a bounded cache, so
+ * repeated values like country codes or statuses share one instance. Use for low-cardinality values only.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Deduplicated {
+    /**
+     * Name of cache, properties with the same name share one cache. Defaults to class name and property name.
+     */
+    String value() default "";
+
+    /**
+     * Number of cached strings, rounded up to power of two. Size of first property creating the cache is used.
+     */
+    int size() default 1024;
+}
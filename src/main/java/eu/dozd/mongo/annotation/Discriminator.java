@@ -0,0 +1,24 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the stored type key of a class which is part of a mapped class hierarchy. Classes in hierarchy without this
+ * annotation use their simple class name.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Discriminator {
+    /**
+     * Value stored in the discriminator key. Defaults to the simple class name.
+     */
+    String value() default "";
+
+    /**
+     * Name of the document key holding the discriminator. Read from the topmost mapped class of the hierarchy.
+     */
+    String key() default "_t";
+}
@@ -0,0 +1,18 @@
+package eu.dozd.mongo.annotation;
+
+import org.bson.codecs.IdGenerator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets generator used for missing ids of an entity. Put it on the id property or on the entity class. Generator
+ * must have public constructor without arguments.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.METHOD})
+public @interface GeneratedId {
+    Class<? extends IdGenerator> value();
+}
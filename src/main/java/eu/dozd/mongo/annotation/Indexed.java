@@ -0,0 +1,37 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Index on annotated property. Properties of embedded classes are indexed by their path from the entity.
+ *
+ * @see eu.dozd.mongo.MongoMapper#getIndexes(Class)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Indexed {
+    boolean descending() default false;
+
+    boolean unique() default false;
+
+    boolean sparse() default false;
+
+    /**
+     * Documents expire given number of seconds after the date in annotated property (TTL index). Negative value means
+     * no expiration.
+     */
+    long expireAfterSeconds() default -1;
+
+    /**
+     * Filter of partial index in JSON, e.g. {@code {"active": true}}. Keys are property paths.
+     */
+    String partialFilter() default "";
+
+    /**
+     * Name of index, generated by server if empty.
+     */
+    String name() default "";
+}
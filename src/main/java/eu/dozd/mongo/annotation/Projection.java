@@ -0,0 +1,25 @@
+package eu.dozd.mongo.annotation;
+
+import org.atteo.classindex.IndexAnnotated;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Read-only view of stored documents, e.g. of aggregation or covered query results. Can be class with setters or
+ * interface with getters only. Just declared properties are decoded, other fields are skipped, no id is required.
+ *
+ * @see eu.dozd.mongo.MongoMapper#getProjection(Class)
+ */
+@IndexAnnotated
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Projection {
+    /**
+     * Mapped class the projection reads. Properties without {@link Property} are stored as properties of the same
+     * name of this class.
+     */
+    Class<?> value() default Void.class;
+}
@@ -0,0 +1,16 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Shard key property of entity. Bulk writes are grouped by its value and upserts filter by it.
+ *
+ * @see eu.dozd.mongo.BulkWriteBuilder
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShardKey {
+}
@@ -0,0 +1,17 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Sparse encoding of annotated entity or property. Nulls, default values of primitives (zero, false) and empty
+ * collections, maps and arrays are not stored. Missing properties are decoded as null, default value or empty
+ * container, so sparse collection is never decoded as null.
+ *
+ * Annotate property with {@code Sparse(false)} to exclude it from sparse encoding of its entity.
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.METHOD})
+public @interface Sparse {
+    boolean value() default true;
+}
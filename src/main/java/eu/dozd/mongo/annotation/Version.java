@@ -0,0 +1,17 @@
+package eu.dozd.mongo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Version of entity for optimistic locking, property must be {@code int}, {@code long} or their wrapper. Missing
+ * version is set to zero on insert.
+ *
+ * @see eu.dozd.mongo.OptimisticLocking
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Version {
+}
@@ -0,0 +1,129 @@
+package eu.dozd.mongo.codecs.compression;
+
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec storing String or byte[] values larger than threshold compressed. Compressed value is stored as BSON binary
+ * of user defined subtype with header:
+ * <pre>
+ *     byte[4] magic (0xFE 'M' 'Z' 0x01), 0xFE never occurs in UTF-8 text
+ *     byte    compressor id
+ *     byte    original type (0 - string, 1 - binary)
+ *     int32   uncompressed length (little endian)
+ *     ...     compressed data
+ * </pre>
+ * Uncompressed strings and binaries, including user defined binaries without the magic, are decoded as they are.
+ * Uncompressed length is checked against maximal ratio of the compressor before anything is allocated.
+ */
+public class CompressedCodec<T> implements Codec<T> {
+    private static final byte[] MAGIC = {(byte) 0xFE, 'M', 'Z', 0x01};
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_BINARY = 1;
+    private static final int HEADER_SIZE = 10;
+    private static final Compressor DEFLATE = new DeflateCompressor();
+
+    private final Class<T> clazz;
+    private final int threshold;
+    private final Compressor compressor;
+
+    public CompressedCodec(Class<T> clazz, int threshold, Compressor compressor) {
+        if (!clazz.equals(String.class) && !clazz.equals(byte[].class)) {
+            throw new IllegalArgumentException("Only String and byte[] values can be compressed, not " + clazz.getName() + ".");
+        }
+        this.clazz = clazz;
+        this.threshold = threshold;
+        this.compressor = compressor;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        boolean string = value instanceof String;
+        byte[] data = string ? ((String) value).getBytes(StandardCharsets.UTF_8) : (byte[]) value;
+
+        if (data.length >= threshold) {
+            byte[] compressed = compressor.compress(data);
+            if (compressed.length + HEADER_SIZE < data.length) {
+                byte[] stored = new byte[HEADER_SIZE + compressed.length];
+                System.arraycopy(MAGIC, 0, stored, 0, MAGIC.length);
+                stored[4] = compressor.getId();
+                stored[5] = string ? TYPE_STRING : TYPE_BINARY;
+                writeInt(stored, 6, data.length);
+                System.arraycopy(compressed, 0, stored, HEADER_SIZE, compressed.length);
+                writer.writeBinaryData(new BsonBinary(BsonBinarySubType.USER_DEFINED, stored));
+                return;
+            }
+        }
+
+        // Small or incompressible value.
+        if (string) {
+            writer.writeString((String) value);
+        } else {
+            writer.writeBinaryData(new BsonBinary(data));
+        }
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            String value = reader.readString();
+            return (T) (clazz.equals(String.class) ? value : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        BsonBinary binary = reader.readBinaryData();
+        byte[] data = binary.getData();
+        if (binary.getType() != BsonBinarySubType.USER_DEFINED.getValue() || !isCompressed(data)) {
+            return (T) (clazz.equals(String.class) ? new String(data, StandardCharsets.UTF_8) : data);
+        }
+
+        Compressor decompressor = getCompressor(data[4]);
+        int compressedLength = data.length - HEADER_SIZE;
+        int uncompressedLength = readInt(data, 6);
+        if (uncompressedLength < 0 || uncompressedLength > (long) compressedLength * decompressor.getMaxRatio()) {
+            throw new BSONException("Invalid uncompressed length " + uncompressedLength + " of " + compressedLength + " compressed bytes.");
+        }
+        byte[] uncompressed = decompressor.decompress(data, HEADER_SIZE, compressedLength, uncompressedLength);
+        return (T) (clazz.equals(String.class) ? new String(uncompressed, StandardCharsets.UTF_8) : uncompressed);
+    }
+
+    private static boolean isCompressed(byte[] data) {
+        if (data.length < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Compressor getCompressor(byte id) {
+        if (id == compressor.getId()) {
+            return compressor;
+        } else if (id == DeflateCompressor.ID) {
+            return DEFLATE;
+        }
+        throw new BSONException("Unknown compressor id " + id + ".");
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return clazz;
+    }
+}
@@ -0,0 +1,23 @@
+package eu.dozd.mongo.codecs.compression;
+
+/**
+ * Compression algorithm used by {@link CompressedCodec}. Implementations must be thread safe.
+ */
+public interface Compressor {
+    /**
+     * @return id stored with compressed values, so they can be decompressed by the right algorithm.
+     */
+    byte getId();
+
+    byte[] compress(byte[] data);
+
+    byte[] decompress(byte[] data, int offset, int length, int uncompressedLength);
+
+    /**
+     * @return maximal ratio of uncompressed and compressed length, larger uncompressed lengths of stored values are
+     * rejected as corrupted before decompression.
+     */
+    default int getMaxRatio() {
+        return Integer.MAX_VALUE;
+    }
+}
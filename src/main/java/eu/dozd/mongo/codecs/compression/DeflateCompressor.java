@@ -0,0 +1,71 @@
+package eu.dozd.mongo.codecs.compression;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressor using JDK deflate. Deflater and inflater are reused per thread, because creating them is expensive.
+ */
+public class DeflateCompressor implements Compressor {
+    public static final byte ID = 1;
+    // Deflate cannot compress better than 1032:1.
+    private static final int MAX_RATIO = 1032;
+
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public int getMaxRatio() {
+        return MAX_RATIO;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+
+        byte[] buffer = new byte[Math.max(64, data.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int offset, int length, int uncompressedLength) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+
+        byte[] result = new byte[uncompressedLength];
+        try {
+            int read = 0;
+            while (read < uncompressedLength && !inflater.finished()) {
+                int n = inflater.inflate(result, read, uncompressedLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != uncompressedLength) {
+                throw new IllegalStateException("Compressed value is truncated, expected " + uncompressedLength + " bytes, got " + read + ".");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed value is corrupted.", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,25 @@
+package eu.dozd.mongo.codecs.time;
+
+import java.time.Instant;
+
+public class InstantCodec extends JavaTimeCodec<Instant> {
+
+    public InstantCodec() {
+        super(Instant.class);
+    }
+
+    @Override
+    long toEpochMilli(Instant value) {
+        return value.toEpochMilli();
+    }
+
+    @Override
+    Instant fromEpochMilli(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli);
+    }
+
+    @Override
+    Instant parse(String value) {
+        return Instant.parse(value);
+    }
+}
@@ -0,0 +1,52 @@
+package eu.dozd.mongo.codecs.time;
+
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Base of java.time codecs. Values are stored as BSON dates (milliseconds since epoch), BSON timestamps and ISO
+ * strings are accepted on decode, so existing data can be read.
+ */
+abstract class JavaTimeCodec<T> implements Codec<T> {
+    private final Class<T> clazz;
+
+    JavaTimeCodec(Class<T> clazz) {
+        this.clazz = clazz;
+    }
+
+    abstract long toEpochMilli(T value);
+
+    abstract T fromEpochMilli(long epochMilli);
+
+    abstract T parse(String value);
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        switch (reader.getCurrentBsonType()) {
+            case DATE_TIME:
+                return fromEpochMilli(reader.readDateTime());
+            case TIMESTAMP:
+                return fromEpochMilli(reader.readTimestamp().getTime() * 1000L);
+            case INT64:
+                return fromEpochMilli(reader.readInt64());
+            case STRING:
+                return parse(reader.readString());
+            default:
+                throw new BsonInvalidOperationException("Cannot decode " + clazz.getSimpleName() + " from " + reader.getCurrentBsonType() + ".");
+        }
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        writer.writeDateTime(toEpochMilli(value));
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return clazz;
+    }
+}
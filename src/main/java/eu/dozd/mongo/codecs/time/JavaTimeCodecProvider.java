@@ -0,0 +1,44 @@
+package eu.dozd.mongo.codecs.time;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.time.*;
+
+/**
+ * Provider of codecs for {@link Instant}, {@link LocalDateTime}, {@link LocalDate} and {@link OffsetDateTime}, all
+ * stored as BSON dates. Local values are converted in given zone, UTC by default.
+ */
+public class JavaTimeCodecProvider implements CodecProvider {
+    private final InstantCodec instantCodec;
+    private final LocalDateTimeCodec localDateTimeCodec;
+    private final LocalDateCodec localDateCodec;
+    private final OffsetDateTimeCodec offsetDateTimeCodec;
+
+    public JavaTimeCodecProvider() {
+        this(ZoneOffset.UTC);
+    }
+
+    public JavaTimeCodecProvider(ZoneId zone) {
+        instantCodec = new InstantCodec();
+        localDateTimeCodec = new LocalDateTimeCodec(zone);
+        localDateCodec = new LocalDateCodec(zone);
+        offsetDateTimeCodec = new OffsetDateTimeCodec(zone);
+    }
+
+    @Override
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry codecRegistry) {
+        if (clazz == Instant.class) {
+            return (Codec<T>) instantCodec;
+        } else if (clazz == LocalDateTime.class) {
+            return (Codec<T>) localDateTimeCodec;
+        } else if (clazz == LocalDate.class) {
+            return (Codec<T>) localDateCodec;
+        } else if (clazz == OffsetDateTime.class) {
+            return (Codec<T>) offsetDateTimeCodec;
+        }
+
+        return null;
+    }
+}
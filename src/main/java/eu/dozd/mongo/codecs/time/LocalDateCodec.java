@@ -0,0 +1,31 @@
+package eu.dozd.mongo.codecs.time;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Stores local date as start of the day in given zone.
+ */
+public class LocalDateCodec extends JavaTimeCodec<LocalDate> {
+    private final LocalDateTimeCodec dateTimeCodec;
+
+    public LocalDateCodec(ZoneId zone) {
+        super(LocalDate.class);
+        dateTimeCodec = new LocalDateTimeCodec(zone);
+    }
+
+    @Override
+    long toEpochMilli(LocalDate value) {
+        return dateTimeCodec.toEpochMilli(value.atStartOfDay());
+    }
+
+    @Override
+    LocalDate fromEpochMilli(long epochMilli) {
+        return dateTimeCodec.fromEpochMilli(epochMilli).toLocalDate();
+    }
+
+    @Override
+    LocalDate parse(String value) {
+        return LocalDate.parse(value);
+    }
+}
@@ -0,0 +1,38 @@
+package eu.dozd.mongo.codecs.time;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Stores local date time as instant in given zone. Fixed offsets (e.g. UTC) are converted without creating any
+ * intermediate objects.
+ */
+public class LocalDateTimeCodec extends JavaTimeCodec<LocalDateTime> {
+    private final ZoneId zone;
+
+    public LocalDateTimeCodec(ZoneId zone) {
+        super(LocalDateTime.class);
+        this.zone = zone.normalized();
+    }
+
+    @Override
+    long toEpochMilli(LocalDateTime value) {
+        ZoneOffset offset = zone instanceof ZoneOffset ? (ZoneOffset) zone : zone.getRules().getOffset(value);
+        return value.toEpochSecond(offset) * 1000L + value.getNano() / 1_000_000;
+    }
+
+    @Override
+    LocalDateTime fromEpochMilli(long epochMilli) {
+        if (zone instanceof ZoneOffset) {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, 1000L), (int) Math.floorMod(epochMilli, 1000L) * 1_000_000, (ZoneOffset) zone);
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zone);
+    }
+
+    @Override
+    LocalDateTime parse(String value) {
+        return LocalDateTime.parse(value);
+    }
+}
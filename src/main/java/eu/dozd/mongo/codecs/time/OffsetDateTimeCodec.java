@@ -0,0 +1,32 @@
+package eu.dozd.mongo.codecs.time;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * Stores offset date time as instant. BSON dates have no offset, so decoded values have offset of given zone.
+ */
+public class OffsetDateTimeCodec extends JavaTimeCodec<OffsetDateTime> {
+    private final ZoneId zone;
+
+    public OffsetDateTimeCodec(ZoneId zone) {
+        super(OffsetDateTime.class);
+        this.zone = zone;
+    }
+
+    @Override
+    long toEpochMilli(OffsetDateTime value) {
+        return value.toEpochSecond() * 1000L + value.getNano() / 1_000_000;
+    }
+
+    @Override
+    OffsetDateTime fromEpochMilli(long epochMilli) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zone);
+    }
+
+    @Override
+    OffsetDateTime parse(String value) {
+        return OffsetDateTime.parse(value);
+    }
+}
@@ -0,0 +1,78 @@
+package eu.dozd.mongo.id;
+
+import org.bson.codecs.IdGenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generator of long ids. Ids are handed out from blocks of {@code blockSize} consecutive values. Every block is
+ * identified by a "hi" value obtained from {@link BlockAllocator}, e.g. a counter document incremented by
+ * {@code findOneAndUpdate}. Ids inside a block are taken by atomic increment only. Exhausted block is refilled by
+ * single thread under lock, others wait for it, so the allocator is called once per {@code blockSize} ids.
+ *
+ * Ids are unique as long as allocator never returns the same value twice. Ids are not guaranteed to be gapless.
+ * Block {@code hi} holds ids {@code hi * blockSize + 1} to {@code (hi + 1) * blockSize}, so zero (missing primitive
+ * id) is never handed out.
+ */
+public class HiLoIdGenerator implements IdGenerator {
+    private final int blockSize;
+    private final BlockAllocator allocator;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+    private final Object refillLock = new Object();
+
+    public HiLoIdGenerator(int blockSize, BlockAllocator allocator) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+        this.allocator = allocator;
+    }
+
+    @Override
+    public Long generate() {
+        while (true) {
+            Block current = block.get();
+            long next = current.next.getAndIncrement();
+            if (next < current.end) {
+                return next;
+            }
+
+            synchronized (refillLock) {
+                // Other thread may have refilled the block while we waited.
+                if (block.get() == current) {
+                    block.set(allocate());
+                }
+            }
+        }
+    }
+
+    private Block allocate() {
+        long hi = allocator.allocate();
+        if (hi < 0 || hi > (Long.MAX_VALUE - 1) / blockSize - 1) {
+            throw new IllegalStateException("Block " + hi + " of size " + blockSize + " is out of range of long ids.");
+        }
+        return new Block(hi * blockSize + 1, hi * blockSize + blockSize + 1);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Source of unique block numbers.
+     */
+    public interface BlockAllocator {
+        long allocate();
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
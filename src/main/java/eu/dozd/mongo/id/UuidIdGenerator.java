@@ -0,0 +1,20 @@
+package eu.dozd.mongo.id;
+
+import org.bson.codecs.IdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random (version 4) UUIDs. Uses {@link ThreadLocalRandom} instead of shared {@code SecureRandom} of
+ * {@link UUID#randomUUID()}, so threads do not contend. Ids are unique but not unpredictable.
+ */
+public class UuidIdGenerator implements IdGenerator {
+    @Override
+    public UUID generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,369 @@
+package eu.dozd.mongo.spring;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import eu.dozd.mongo.MongoMapperException;
+import org.bson.*;
+import org.bson.types.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Reader over {@link DBObject}, like {@link BsonDocumentReader} over BsonDocument, so codecs decode values of the
+ * object without encoding it first. Values are expected in the form produced by {@link com.mongodb.DBObjectCodec}
+ * or {@link DBObjectWriter}, UUIDs are read as binary subtype 4.
+ */
+class DBObjectReader extends AbstractBsonReader {
+    private Object currentValue;
+    private Mark mark;
+
+    DBObjectReader(DBObject document) {
+        setContext(new Context(null, BsonContextType.TOP_LEVEL, null, null));
+        currentValue = document;
+    }
+
+    @Override
+    public BsonType readBsonType() {
+        if (getState() == State.INITIAL || getState() == State.SCOPE_DOCUMENT) {
+            // There is an implied type of document for the top level and for scope documents.
+            setCurrentBsonType(BsonType.DOCUMENT);
+            setState(State.VALUE);
+            return getCurrentBsonType();
+        }
+        if (getState() != State.TYPE) {
+            throwInvalidState("ReadBSONType", State.TYPE);
+        }
+
+        Context context = getContext();
+        if (!context.hasNext()) {
+            setState(context.getContextType() == BsonContextType.ARRAY ? State.END_OF_ARRAY : State.END_OF_DOCUMENT);
+            return BsonType.END_OF_DOCUMENT;
+        }
+        if (context.getContextType() == BsonContextType.ARRAY) {
+            currentValue = context.list.get(context.index++);
+            setState(State.VALUE);
+        } else {
+            String name = context.keys[context.index++];
+            setCurrentName(name);
+            currentValue = context.document.get(name);
+            setState(State.NAME);
+        }
+
+        setCurrentBsonType(getBsonType(currentValue));
+        return getCurrentBsonType();
+    }
+
+    private static BsonType getBsonType(Object value) {
+        if (value == null) {
+            return BsonType.NULL;
+        } else if (value instanceof String || value instanceof Character) {
+            return BsonType.STRING;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BsonType.INT32;
+        } else if (value instanceof Long) {
+            return BsonType.INT64;
+        } else if (value instanceof Double || value instanceof Float) {
+            return BsonType.DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BsonType.BOOLEAN;
+        } else if (value instanceof Date) {
+            return BsonType.DATE_TIME;
+        } else if (value instanceof ObjectId) {
+            return BsonType.OBJECT_ID;
+        } else if (value instanceof List) {
+            return BsonType.ARRAY;
+        } else if (value instanceof DBObject || value instanceof Map || value instanceof DBRef) {
+            return BsonType.DOCUMENT;
+        } else if (value instanceof byte[] || value instanceof Binary || value instanceof UUID) {
+            return BsonType.BINARY;
+        } else if (value instanceof Decimal128) {
+            return BsonType.DECIMAL128;
+        } else if (value instanceof Pattern || value instanceof BsonRegularExpression) {
+            return BsonType.REGULAR_EXPRESSION;
+        } else if (value instanceof BSONTimestamp) {
+            return BsonType.TIMESTAMP;
+        } else if (value instanceof CodeWScope) {
+            return BsonType.JAVASCRIPT_WITH_SCOPE;
+        } else if (value instanceof Code) {
+            return BsonType.JAVASCRIPT;
+        } else if (value instanceof Symbol) {
+            return BsonType.SYMBOL;
+        } else if (value instanceof MinKey) {
+            return BsonType.MIN_KEY;
+        } else if (value instanceof MaxKey) {
+            return BsonType.MAX_KEY;
+        }
+        throw new MongoMapperException("Value of type " + value.getClass().getName() + " cannot be read from DBObject.");
+    }
+
+    @Override
+    protected BsonBinary doReadBinaryData() {
+        if (currentValue instanceof byte[]) {
+            return new BsonBinary((byte[]) currentValue);
+        } else if (currentValue instanceof UUID) {
+            UUID uuid = (UUID) currentValue;
+            byte[] bytes = new byte[16];
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (msb >>> (8 * (7 - i)));
+                bytes[8 + i] = (byte) (lsb >>> (8 * (7 - i)));
+            }
+            return new BsonBinary(BsonBinarySubType.UUID_STANDARD, bytes);
+        }
+        Binary binary = (Binary) currentValue;
+        return new BsonBinary(binary.getType(), binary.getData());
+    }
+
+    @Override
+    protected byte doPeekBinarySubType() {
+        return doReadBinaryData().getType();
+    }
+
+    @Override
+    protected int doPeekBinarySize() {
+        return doReadBinaryData().getData().length;
+    }
+
+    @Override
+    protected boolean doReadBoolean() {
+        return (Boolean) currentValue;
+    }
+
+    @Override
+    protected long doReadDateTime() {
+        return ((Date) currentValue).getTime();
+    }
+
+    @Override
+    protected double doReadDouble() {
+        return ((Number) currentValue).doubleValue();
+    }
+
+    @Override
+    protected int doReadInt32() {
+        return ((Number) currentValue).intValue();
+    }
+
+    @Override
+    protected long doReadInt64() {
+        return (Long) currentValue;
+    }
+
+    @Override
+    protected Decimal128 doReadDecimal128() {
+        return (Decimal128) currentValue;
+    }
+
+    @Override
+    protected String doReadJavaScript() {
+        return ((Code) currentValue).getCode();
+    }
+
+    @Override
+    protected String doReadJavaScriptWithScope() {
+        return ((CodeWScope) currentValue).getCode();
+    }
+
+    @Override
+    protected void doReadMaxKey() {
+    }
+
+    @Override
+    protected void doReadMinKey() {
+    }
+
+    @Override
+    protected void doReadNull() {
+    }
+
+    @Override
+    protected ObjectId doReadObjectId() {
+        return (ObjectId) currentValue;
+    }
+
+    @Override
+    protected BsonRegularExpression doReadRegularExpression() {
+        if (currentValue instanceof Pattern) {
+            Pattern pattern = (Pattern) currentValue;
+            return new BsonRegularExpression(pattern.pattern(), getOptions(pattern.flags()));
+        }
+        return (BsonRegularExpression) currentValue;
+    }
+
+    private static String getOptions(int flags) {
+        StringBuilder options = new StringBuilder();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+            options.append('i');
+        }
+        if ((flags & Pattern.MULTILINE) != 0) {
+            options.append('m');
+        }
+        if ((flags & Pattern.DOTALL) != 0) {
+            options.append('s');
+        }
+        if ((flags & Pattern.UNICODE_CASE) != 0) {
+            options.append('u');
+        }
+        if ((flags & Pattern.COMMENTS) != 0) {
+            options.append('x');
+        }
+        return options.toString();
+    }
+
+    @Override
+    protected BsonDbPointer doReadDBPointer() {
+        throw new MongoMapperException("DBPointer is read from DBObject as document.");
+    }
+
+    @Override
+    protected void doReadStartArray() {
+        setContext(new Context(getContext(), BsonContextType.ARRAY, null, (List<?>) currentValue));
+    }
+
+    @Override
+    protected void doReadStartDocument() {
+        DBObject document;
+        if (currentValue instanceof CodeWScope) {
+            document = toDBObject(((CodeWScope) currentValue).getScope());
+        } else if (currentValue instanceof DBRef) {
+            DBRef ref = (DBRef) currentValue;
+            document = new BasicDBObject("$ref", ref.getCollectionName()).append("$id", ref.getId());
+            if (ref.getDatabaseName() != null) {
+                document.put("$db", ref.getDatabaseName());
+            }
+        } else {
+            document = toDBObject(currentValue);
+        }
+        setContext(new Context(getContext(), BsonContextType.DOCUMENT, document, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DBObject toDBObject(Object value) {
+        return value instanceof DBObject ? (DBObject) value : new BasicDBObject((Map<String, Object>) value);
+    }
+
+    @Override
+    protected String doReadString() {
+        return currentValue.toString();
+    }
+
+    @Override
+    protected String doReadSymbol() {
+        return ((Symbol) currentValue).getSymbol();
+    }
+
+    @Override
+    protected BsonTimestamp doReadTimestamp() {
+        BSONTimestamp timestamp = (BSONTimestamp) currentValue;
+        return new BsonTimestamp(timestamp.getTime(), timestamp.getInc());
+    }
+
+    @Override
+    protected void doReadUndefined() {
+    }
+
+    @Override
+    protected void doReadEndArray() {
+        setContext(getContext().getParentContext());
+    }
+
+    @Override
+    protected void doReadEndDocument() {
+        setContext(getContext().getParentContext());
+        switch (getContext().getContextType()) {
+            case ARRAY:
+            case DOCUMENT:
+                setState(State.TYPE);
+                break;
+            case TOP_LEVEL:
+                setState(State.DONE);
+                break;
+            default:
+                throw new BSONException("Unexpected ContextType.");
+        }
+    }
+
+    @Override
+    protected void doSkipName() {
+    }
+
+    @Override
+    protected void doSkipValue() {
+    }
+
+    @Override
+    public void mark() {
+        if (mark != null) {
+            throw new BSONException("A mark already exists; it needs to be reset before creating a new one");
+        }
+        mark = new Mark();
+    }
+
+    @Override
+    public void reset() {
+        if (mark == null) {
+            throw new BSONException("trying to reset a mark before creating it");
+        }
+        mark.reset();
+        mark = null;
+    }
+
+    @Override
+    protected Context getContext() {
+        return (Context) super.getContext();
+    }
+
+    protected class Mark extends AbstractBsonReader.Mark {
+        private final Object currentValue;
+        private final Context context;
+        private final int index;
+
+        protected Mark() {
+            currentValue = DBObjectReader.this.currentValue;
+            context = DBObjectReader.this.getContext();
+            index = context.index;
+        }
+
+        @Override
+        protected void reset() {
+            super.reset();
+            DBObjectReader.this.currentValue = currentValue;
+            DBObjectReader.this.setContext(context);
+            context.index = index;
+        }
+    }
+
+    private class Context extends AbstractBsonReader.Context {
+        private final DBObject document;
+        private final String[] keys;
+        private final List<?> list;
+        private int index;
+
+        Context(Context parentContext, BsonContextType contextType, DBObject document, List<?> list) {
+            super(parentContext, contextType);
+            this.document = document;
+            this.keys = document != null ? document.keySet().toArray(new String[0]) : null;
+            this.list = list;
+        }
+
+        boolean hasNext() {
+            return index < (list != null ? list.size() : keys.length);
+        }
+
+        @Override
+        protected Context getParentContext() {
+            return (Context) super.getParentContext();
+        }
+
+        @Override
+        protected BsonContextType getContextType() {
+            return super.getContextType();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package eu.dozd.mongo.spring;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.bson.AbstractBsonWriter;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonContextType;
+import org.bson.BsonDbPointer;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonTimestamp;
+import org.bson.BsonWriterSettings;
+import org.bson.types.*;
+
+import java.util.Date;
+
+/**
+ * Writer which builds {@link DBObject} directly, like {@link org.bson.BsonDocumentWriter} builds BsonDocument. Values
+ * are stored as the driver's {@link com.mongodb.DBObjectCodec} decodes them, except binary subtypes other than generic
+ * are kept as {@link Binary}, so UUIDs keep their subtype when the driver encodes the object.
+ */
+class DBObjectWriter extends AbstractBsonWriter {
+    private final DBObject document;
+
+    DBObjectWriter(DBObject document) {
+        super(new BsonWriterSettings());
+        this.document = document;
+        setContext(new Context());
+    }
+
+    @Override
+    protected void doWriteStartDocument() {
+        switch (getState()) {
+            case INITIAL:
+                setContext(new Context(document, BsonContextType.DOCUMENT, getContext()));
+                break;
+            case VALUE:
+                setContext(new Context(new BasicDBObject(), BsonContextType.DOCUMENT, getContext()));
+                break;
+            case SCOPE_DOCUMENT:
+                setContext(new Context(new BasicDBObject(), BsonContextType.SCOPE_DOCUMENT, getContext()));
+                break;
+            default:
+                throw new BsonInvalidOperationException("Unexpected state " + getState());
+        }
+    }
+
+    @Override
+    protected void doWriteEndDocument() {
+        Object value = getContext().container;
+        setContext(getContext().getParentContext());
+
+        if (getContext().getContextType() == BsonContextType.JAVASCRIPT_WITH_SCOPE) {
+            String code = (String) getContext().container;
+            setContext(getContext().getParentContext());
+            write(new CodeWScope(code, (DBObject) value));
+        } else if (getContext().getContextType() != BsonContextType.TOP_LEVEL) {
+            write(value);
+        }
+    }
+
+    @Override
+    protected void doWriteStartArray() {
+        setContext(new Context(new BasicDBList(), BsonContextType.ARRAY, getContext()));
+    }
+
+    @Override
+    protected void doWriteEndArray() {
+        Object value = getContext().container;
+        setContext(getContext().getParentContext());
+        write(value);
+    }
+
+    @Override
+    protected void doWriteBinaryData(BsonBinary value) {
+        if (value.getType() == BsonBinarySubType.BINARY.getValue() || value.getType() == BsonBinarySubType.OLD_BINARY.getValue()) {
+            write(value.getData());
+        } else {
+            write(new Binary(value.getType(), value.getData()));
+        }
+    }
+
+    @Override
+    protected void doWriteBoolean(boolean value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteDateTime(long value) {
+        write(new Date(value));
+    }
+
+    @Override
+    protected void doWriteDBPointer(BsonDbPointer value) {
+        write(new DBRef(value.getNamespace(), value.getId()));
+    }
+
+    @Override
+    protected void doWriteDouble(double value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteInt32(int value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteInt64(long value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteDecimal128(Decimal128 value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteJavaScript(String value) {
+        write(new Code(value));
+    }
+
+    @Override
+    protected void doWriteJavaScriptWithScope(String value) {
+        setContext(new Context(value, BsonContextType.JAVASCRIPT_WITH_SCOPE, getContext()));
+    }
+
+    @Override
+    protected void doWriteMaxKey() {
+        write(new MaxKey());
+    }
+
+    @Override
+    protected void doWriteMinKey() {
+        write(new MinKey());
+    }
+
+    @Override
+    protected void doWriteNull() {
+        write(null);
+    }
+
+    @Override
+    protected void doWriteObjectId(ObjectId value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteRegularExpression(BsonRegularExpression value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteString(String value) {
+        write(value);
+    }
+
+    @Override
+    protected void doWriteSymbol(String value) {
+        write(new Symbol(value));
+    }
+
+    @Override
+    protected void doWriteTimestamp(BsonTimestamp value) {
+        write(new BSONTimestamp(value.getTime(), value.getInc()));
+    }
+
+    @Override
+    protected void doWriteUndefined() {
+        write(null);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    protected Context getContext() {
+        return (Context) super.getContext();
+    }
+
+    private void write(Object value) {
+        if (getContext().getContextType() == BsonContextType.ARRAY) {
+            ((BasicDBList) getContext().container).add(value);
+        } else {
+            ((DBObject) getContext().container).put(getName(), value);
+        }
+    }
+
+    private class Context extends AbstractBsonWriter.Context {
+        // Document or list being written, code for JavaScript with scope.
+        private final Object container;
+
+        Context(Object container, BsonContextType contextType, Context parent) {
+            super(parent, contextType);
+            this.container = container;
+        }
+
+        Context() {
+            super(null, BsonContextType.TOP_LEVEL);
+            this.container = null;
+        }
+
+        @Override
+        public Context getParentContext() {
+            return (Context) super.getParentContext();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package eu.dozd.mongo.spring;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import eu.dozd.mongo.MongoMapper;
+import eu.dozd.mongo.ReusingDecoder;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.util.TypeInformation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spring Data converter which reads and writes mapped classes by mapper codecs, other classes are converted by
+ * {@link MappingMongoConverter}. Spring still maps queries and updates. Use it for {@code MongoTemplate}:
+ *
+ * new MongoTemplate(mongoDbFactory, new MapperMongoConverter(new DefaultDbRefResolver(mongoDbFactory), new MongoMappingContext()));
+ *
+ * Mapped classes are stored without Spring type key, subclasses are resolved by
+ * {@link eu.dozd.mongo.annotation.Discriminator}. Codecs read and write the {@link DBObject} directly, without
+ * intermediate BSON bytes.
+ */
+public class MapperMongoConverter extends MappingMongoConverter {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final EncoderContext COLLECTIBLE_ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+    private final CodecRegistry codecRegistry;
+    private final Map<Class<?>, Boolean> mapped = new ConcurrentHashMap<>();
+
+    public MapperMongoConverter(DbRefResolver dbRefResolver, MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext) {
+        this(dbRefResolver, mappingContext, CodecRegistries.fromProviders(MongoMapper.getProviders()));
+    }
+
+    /**
+     * @param codecRegistry registry with codecs of mapped classes, e.g. the one passed to {@code MongoClientOptions}.
+     */
+    public MapperMongoConverter(DbRefResolver dbRefResolver, MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext,
+                                CodecRegistry codecRegistry) {
+        super(dbRefResolver, mappingContext);
+        this.codecRegistry = codecRegistry;
+    }
+
+    @Override
+    public <S> S read(Class<S> type, DBObject dbo) {
+        if (dbo == null || !isMapped(type)) {
+            return super.read(type, dbo);
+        }
+
+        return codecRegistry.get(type).decode(new DBObjectReader(dbo), DECODER_CONTEXT);
+    }
+
+    @Override
+    public void write(Object obj, DBObject dbo) {
+        if (obj == null || !isMapped(obj.getClass())) {
+            super.write(obj, dbo);
+            return;
+        }
+
+        // Same as driver on insert, template then reads generated id back from the written object.
+        Codec<Object> codec = (Codec<Object>) codecRegistry.get(obj.getClass());
+        if (codec instanceof CollectibleCodec) {
+            ((CollectibleCodec<Object>) codec).generateIdIfAbsentFromDocument(obj);
+        }
+        codec.encode(new DBObjectWriter(dbo), obj, COLLECTIBLE_ENCODER_CONTEXT);
+    }
+
+    @Override
+    public Object convertToMongoType(Object obj, TypeInformation<?> typeInformation) {
+        if (obj == null || !isMapped(obj.getClass())) {
+            return super.convertToMongoType(obj, typeInformation);
+        }
+
+        // Mapped values in queries and updates.
+        DBObject dbo = new BasicDBObject();
+        ((Codec<Object>) codecRegistry.get(obj.getClass())).encode(new DBObjectWriter(dbo), obj, ENCODER_CONTEXT);
+        return dbo;
+    }
+
+    /**
+     * @return true if the registry decodes given class by mapper codec.
+     */
+    boolean isMapped(Class<?> clazz) {
+        return mapped.computeIfAbsent(clazz, c -> {
+            try {
+                return codecRegistry.get(c) instanceof ReusingDecoder;
+            } catch (CodecConfigurationException e) {
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.TestEntity;
+import eu.dozd.mongo.entity.TestEntityByteBuffer;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BsonDumpTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CodecRegistry registry;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+        file = folder.newFile("test.bson").toPath();
+    }
+
+    private void writeEntities(int count) throws IOException {
+        try (BsonDumpWriter<TestEntity> writer = new BsonDumpWriter<>(file, TestEntity.class, registry)) {
+            for (int i = 0; i < count; i++) {
+                TestEntity entity = new TestEntity();
+                entity.setId("id" + i);
+                entity.setI(i);
+                entity.setJ(i);
+                writer.write(entity);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        writeEntities(100);
+
+        try (BsonDumpReader<TestEntity> reader = new BsonDumpReader<>(file, TestEntity.class, registry)) {
+            List<TestEntity> entities = reader.stream().collect(Collectors.toList());
+            Assert.assertEquals(100, entities.size());
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals("id" + i, entities.get(i).getId());
+                Assert.assertEquals(i, entities.get(i).getI());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSegments() throws IOException {
+        writeEntities(10000);
+
+        // Small segments, so file is mapped by many of them.
+        try (BsonDumpReader<TestEntity> reader = new BsonDumpReader<>(file, TestEntity.class, registry, 100 * 1024)) {
+            List<Integer> values = reader.stream().parallel().map(TestEntity::getI).collect(Collectors.toList());
+            Assert.assertEquals(10000, values.size());
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertEquals(i, values.get(i).intValue());
+            }
+            Assert.assertEquals(10000, reader.stream().parallel().mapToInt(TestEntity::getI).distinct().count());
+        }
+    }
+
+    @Test
+    public void testSlices() throws IOException {
+        TestEntityByteBuffer entity = new TestEntityByteBuffer();
+        entity.setData(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        try (BsonDumpWriter<TestEntityByteBuffer> writer = new BsonDumpWriter<>(file, TestEntityByteBuffer.class, registry)) {
+            writer.write(entity);
+        }
+
+        try (BsonDumpReader<TestEntityByteBuffer> reader = new BsonDumpReader<>(file, TestEntityByteBuffer.class, registry)) {
+            ByteBuffer data = reader.stream().findFirst().get().getData();
+            Assert.assertTrue(data.isReadOnly());
+            Assert.assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), data);
+        }
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testTruncated() throws IOException {
+        writeEntities(2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (BsonDumpReader<TestEntity> reader = new BsonDumpReader<>(file, TestEntity.class, registry)) {
+            reader.stream().count();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.*;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BsonSizeCalculatorTest {
+
+    private CodecRegistry registry;
+    private BsonSizeCalculator calculator;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+        calculator = new BsonSizeCalculator(registry);
+    }
+
+    private <T> int encodedSize(T value) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        Codec<T> codec = (Codec<T>) registry.get(value.getClass());
+        codec.encode(new BsonBinaryWriter(buffer), value, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        return buffer.getPosition();
+    }
+
+    @Test
+    public void testSizeOfEntity() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("jedna", 1);
+        map.put("čtyři", 4);
+
+        TestEntity entity = new TestEntity();
+        entity.setId(new ObjectId().toHexString());
+        entity.setName("Žluťoučký kůň 🐎 \uD800 unpaired");
+        entity.setChecked(true);
+        entity.setI(42);
+        entity.setMap(map);
+
+        Assert.assertEquals(encodedSize(entity), calculator.getSize(entity));
+    }
+
+    @Test
+    public void testSizeOfNestedAndCompressed() {
+        TestEntityCat cat = new TestEntityCat();
+        cat.setName("Tom");
+        TestEntityDog dog = new TestEntityDog();
+        dog.setName("Rex");
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(dog);
+        zoo.setAnimals(Arrays.asList(cat, dog));
+        Assert.assertEquals(encodedSize(zoo), calculator.getSize(zoo));
+
+        TestEntityCompressed compressed = new TestEntityCompressed();
+        compressed.setText(new String(new char[500]).replace('\0', 'x'));
+        compressed.setPayload(new byte[10]);
+        Assert.assertEquals(encodedSize(compressed), calculator.getSize(compressed));
+    }
+
+    @Test
+    public void testEncodePresized() {
+        TestEntity entity = new TestEntity();
+        entity.setName("name");
+
+        RawBsonDocument document = calculator.encode(entity);
+        Assert.assertEquals(calculator.getSize(entity), document.getByteBuffer().remaining());
+        Assert.assertEquals("name", document.getString("name").getValue());
+    }
+
+    @Test
+    public void testUtf8Length() {
+        Assert.assertEquals(0, CountingBsonOutput.utf8Length(""));
+        Assert.assertEquals(3, CountingBsonOutput.utf8Length("a\u0000b"));
+        Assert.assertEquals(2, CountingBsonOutput.utf8Length("č"));
+        Assert.assertEquals(3, CountingBsonOutput.utf8Length("€"));
+        Assert.assertEquals(4, CountingBsonOutput.utf8Length("🐎"));
+    }
+}
@@ -0,0 +1,117 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import eu.dozd.mongo.entity.TestEntitySharded;
+import eu.dozd.mongo.entity.TestEntityShardedStringId;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BulkWriteBuilderTest {
+
+    private CodecRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+    }
+
+    @Test
+    public void testGroupedByRanges() {
+        List<TestEntitySharded> entities = Arrays.asList(
+                new TestEntitySharded("us", "a"),
+                new TestEntitySharded("asia", "b"),
+                new TestEntitySharded("eu", "c"),
+                new TestEntitySharded("africa", "d"),
+                new TestEntitySharded("us", "e"));
+
+        List<List<WriteModel<TestEntitySharded>>> batches = new BulkWriteBuilder<>(TestEntitySharded.class, registry)
+                .splitPoints(Arrays.asList("m", "b"))
+                .build(entities);
+
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(Arrays.asList("africa", "asia"), getRegions(batches.get(0)));
+        Assert.assertEquals(Arrays.asList("eu"), getRegions(batches.get(1)));
+        Assert.assertEquals(Arrays.asList("us", "us"), getRegions(batches.get(2)));
+        for (TestEntitySharded entity : entities) {
+            Assert.assertNotNull(entity.getId());
+        }
+    }
+
+    @Test
+    public void testLimits() {
+        List<TestEntitySharded> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entities.add(new TestEntitySharded("eu", "name" + i));
+        }
+
+        List<List<WriteModel<TestEntitySharded>>> batches = new BulkWriteBuilder<>(TestEntitySharded.class, registry)
+                .maxCount(4)
+                .build(entities);
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(2, batches.get(2).size());
+
+        int size = new BsonSizeCalculator(registry).getSize(entities.get(0));
+        batches = new BulkWriteBuilder<>(TestEntitySharded.class, registry)
+                .maxBytes(size * 3)
+                .build(entities);
+        Assert.assertEquals(4, batches.size());
+        Assert.assertEquals(3, batches.get(0).size());
+
+        batches = new BulkWriteBuilder<>(TestEntitySharded.class, registry)
+                .maxBytes(1)
+                .build(entities);
+        Assert.assertEquals(10, batches.size());
+    }
+
+    @Test
+    public void testUpsert() {
+        TestEntitySharded entity = new TestEntitySharded("eu", "a");
+
+        List<List<WriteModel<TestEntitySharded>>> batches = new BulkWriteBuilder<>(TestEntitySharded.class, registry)
+                .upsert(true)
+                .build(Arrays.asList(entity));
+
+        ReplaceOneModel<TestEntitySharded> model = (ReplaceOneModel<TestEntitySharded>) batches.get(0).get(0);
+        Assert.assertTrue(model.getOptions().isUpsert());
+        Assert.assertSame(entity, model.getReplacement());
+        Assert.assertEquals(new BsonDocument("_id", new BsonObjectId(entity.getId())).append("r", new BsonString("eu")), model.getFilter());
+    }
+
+    @Test
+    public void testUpsertStringId() {
+        TestEntityShardedStringId entity = new TestEntityShardedStringId("eu");
+
+        List<List<WriteModel<TestEntityShardedStringId>>> batches = new BulkWriteBuilder<>(TestEntityShardedStringId.class, registry)
+                .upsert(true)
+                .build(Arrays.asList(entity));
+
+        // Generated id looks like ObjectId, but is stored as string, so filter must use string too.
+        ReplaceOneModel<TestEntityShardedStringId> model = (ReplaceOneModel<TestEntityShardedStringId>) batches.get(0).get(0);
+        BsonDocument document = new BsonDocument();
+        registry.get(TestEntityShardedStringId.class).encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        Assert.assertEquals(new BsonString(entity.getId()), document.get("_id"));
+        Assert.assertEquals(new BsonDocument("_id", document.get("_id")).append("region", new BsonString("eu")), model.getFilter());
+    }
+
+    private static List<String> getRegions(List<WriteModel<TestEntitySharded>> batch) {
+        List<String> regions = new ArrayList<>();
+        for (WriteModel<TestEntitySharded> model : batch) {
+            regions.add(((InsertOneModel<TestEntitySharded>) model).getDocument().getRegion());
+        }
+        return regions;
+    }
+}
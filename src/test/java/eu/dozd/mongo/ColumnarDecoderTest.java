@@ -0,0 +1,109 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.TestEntityMeasurement;
+import eu.dozd.mongo.entity.TestEntitySparse;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnarDecoderTest {
+
+    private final CodecRegistry registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+
+    private static List<RawBsonDocument> parse(String... json) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        for (String document : json) {
+            documents.add(new RawBsonDocument(BsonDocument.parse(document), new BsonDocumentCodec()));
+        }
+        return documents;
+    }
+
+    @Test
+    public void testDecode() {
+        List<RawBsonDocument> documents = parse(
+                "{_id: 'a', sensor: 's1', v: 1.5, count: {$numberLong: '10'}, time: {$date: 1000}, quality: 3}",
+                "{_id: 'b', v: 2, count: null, quality: {$numberLong: '4'}, sensor: 's2'}",
+                "{_id: 'c', sensor: {nested: [1, 2]}, v: null, time: {$date: 2000}}");
+
+        ColumnBatch batch = new ColumnarDecoder(TestEntityMeasurement.class, registry, "value", "count", "time", "quality").decode(documents);
+
+        Assert.assertEquals(3, batch.size());
+        Assert.assertArrayEquals(new double[]{1.5, 2, 0}, batch.getDoubles("value"), 0);
+        Assert.assertArrayEquals(new long[]{10, 0, 0}, batch.getLongs("count"));
+        Assert.assertArrayEquals(new long[]{1000, 0, 2000}, batch.getLongs("time"));
+        Assert.assertArrayEquals(new int[]{3, 4, 0}, batch.getInts("quality"));
+
+        Assert.assertTrue(batch.isNull("value", 2));
+        Assert.assertEquals(Arrays.asList(1, 2), toList(batch, "count"));
+        Assert.assertEquals(Arrays.asList(1), toList(batch, "time"));
+        Assert.assertEquals(Arrays.asList(2), toList(batch, "quality"));
+    }
+
+    private static List<Integer> toList(ColumnBatch batch, String property) {
+        List<Integer> rows = new ArrayList<>();
+        batch.getNulls(property).stream().forEach(rows::add);
+        return rows;
+    }
+
+    @Test
+    public void testSparse() {
+        ColumnBatch batch = new ColumnarDecoder(TestEntitySparse.class, registry, "priority").decode(parse("{}", "{priority: 3}"));
+
+        // Omitted sparse primitive is zero, not missing.
+        Assert.assertArrayEquals(new int[]{0, 3}, batch.getInts("priority"));
+        Assert.assertTrue(batch.getNulls("priority").isEmpty());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testIntRange() {
+        new ColumnarDecoder(TestEntityMeasurement.class, registry, "quality").decode(parse("{quality: {$numberLong: '3000000000'}}"));
+    }
+
+    @Test
+    public void testRanges() {
+        assertRejected("count", "{count: 1e19}");
+        assertRejected("count", "{count: 1.5}");
+        assertRejected("count", "{count: NaN}");
+        assertRejected("quality", "{quality: 2.5}");
+        assertRejected("quality", "{quality: NaN}");
+        assertRejected("quality", "{quality: 3e9}");
+
+        ColumnBatch batch = new ColumnarDecoder(TestEntityMeasurement.class, registry, "count", "quality", "value")
+                .decode(parse("{count: 4.0, quality: -2147483648.0, v: NaN}"));
+        Assert.assertArrayEquals(new long[]{4}, batch.getLongs("count"));
+        Assert.assertArrayEquals(new int[]{Integer.MIN_VALUE}, batch.getInts("quality"));
+        Assert.assertTrue(Double.isNaN(batch.getDoubles("value")[0]));
+    }
+
+    private void assertRejected(String property, String json) {
+        try {
+            new ColumnarDecoder(TestEntityMeasurement.class, registry, property).decode(parse(json));
+            Assert.fail(json);
+        } catch (MongoMapperException e) {
+            // Expected.
+        }
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testNotNumeric() {
+        new ColumnarDecoder(TestEntityMeasurement.class, registry, "sensor");
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testWrongColumnType() {
+        new ColumnarDecoder(TestEntityMeasurement.class, registry, "value").decode(parse("{v: 1}")).getLongs("value");
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testInvalidValue() {
+        new ColumnarDecoder(TestEntityMeasurement.class, registry, "value").decode(parse("{v: 'text'}"));
+    }
+}
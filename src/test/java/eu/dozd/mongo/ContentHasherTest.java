@@ -0,0 +1,137 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.*;
+import org.bson.BsonDocumentReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.*;
+
+public class ContentHasherTest {
+
+    private CodecRegistry registry;
+    private ContentHasher hasher;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+        hasher = new ContentHasher(registry);
+    }
+
+    @Test
+    public void testEqualToDigestOfEncoded() throws Exception {
+        TestEntity entity = new TestEntity();
+        entity.setId("id");
+        entity.setName("Žluťoučký kůň 🐴");
+        entity.setI(42);
+        entity.setMap(new HashMap<>(Collections.singletonMap("a", 1)));
+
+        TestEntityDog dog = new TestEntityDog();
+        dog.setName("Rex");
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setId("zoo");
+        zoo.setFavourite(dog);
+        zoo.setAnimals(Arrays.asList(dog, new TestEntityCat()));
+
+        for (Object value : Arrays.asList(entity, zoo)) {
+            RawBsonDocument encoded = new BsonSizeCalculator(registry).encode(value);
+            ByteBuffer bytes = encoded.getByteBuffer().asNIO();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes);
+            Assert.assertArrayEquals(digest.digest(), hasher.hash(value));
+        }
+    }
+
+    @Test
+    public void testChanges() {
+        TestEntity entity = new TestEntity();
+        entity.setName("name");
+        byte[] hash = hasher.hash(entity);
+        Assert.assertArrayEquals(hash, hasher.hash(entity));
+
+        entity.setName("other");
+        Assert.assertFalse(Arrays.equals(hash, hasher.hash(entity)));
+        Assert.assertEquals(16, new ContentHasher(registry, "MD5").hash(entity).length);
+    }
+
+    @Test
+    public void testMapOrder() {
+        Map<String, Integer> small = new HashMap<>(2);
+        Map<String, Integer> large = new HashMap<>(1024);
+        Map<String, Integer> reversed = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            small.put("key" + i, i);
+            large.put("key" + i, i);
+            reversed.put("key" + (99 - i), 99 - i);
+        }
+        Assert.assertNotEquals(new ArrayList<>(small.keySet()), new ArrayList<>(large.keySet()));
+
+        byte[] hash = null;
+        for (Map<String, Integer> map : Arrays.asList(small, large, reversed, new TreeMap<>(small))) {
+            TestEntity entity = new TestEntity();
+            entity.setMap(map);
+            if (hash == null) {
+                hash = hasher.hash(entity);
+            }
+            Assert.assertArrayEquals(hash, hasher.hash(entity));
+        }
+    }
+
+    @Test
+    public void testSetOrder() {
+        Set<String> small = new HashSet<>(2);
+        Set<String> large = new HashSet<>(128);
+        Set<String> reversed = new LinkedHashSet<>();
+        for (String tag : Arrays.asList("A", "P", "tag", "other")) {
+            small.add(tag);
+            large.add(tag);
+        }
+        for (String tag : Arrays.asList("other", "tag", "P", "A")) {
+            reversed.add(tag);
+        }
+        Assert.assertNotEquals(new ArrayList<>(small), new ArrayList<>(large));
+
+        TestEntityTagged entity = new TestEntityTagged();
+        entity.setTags(small);
+        byte[] hash = hasher.hash(entity);
+        for (Set<String> tags : Arrays.asList(large, reversed, new TreeSet<>(small))) {
+            entity.setTags(tags);
+            Assert.assertArrayEquals(hash, hasher.hash(entity));
+        }
+
+        // Decoded set is presized by the last decoded set.
+        Codec<TestEntityTagged> codec = registry.get(TestEntityTagged.class);
+        for (Set<String> tags : Arrays.asList(large, small)) {
+            entity.setTags(tags);
+            TestEntityTagged decoded = codec.decode(new BsonDocumentReader(new BsonSizeCalculator(registry).encode(entity)),
+                    DecoderContext.builder().build());
+            Assert.assertArrayEquals(hash, hasher.hash(decoded));
+        }
+
+        // Elements without natural order are sorted by their encoding.
+        List<TestEntityShortNamesChild> children = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TestEntityShortNamesChild child = new TestEntityShortNamesChild();
+            child.setValue(i);
+            children.add(child);
+        }
+        entity.setChildren(new LinkedHashSet<>(children));
+        byte[] childrenHash = hasher.hash(entity);
+        Collections.reverse(children);
+        entity.setChildren(new LinkedHashSet<>(children));
+        Assert.assertArrayEquals(childrenHash, hasher.hash(entity));
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUnknownAlgorithm() {
+        new ContentHasher(registry, "unknown");
+    }
+}
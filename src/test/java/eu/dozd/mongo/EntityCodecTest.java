@@ -0,0 +1,570 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.*;
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BsonInput;
+import org.bson.io.ByteBufferBsonInput;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+public class EntityCodecTest {
+
+    private CodecRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+    }
+
+    private <T> BsonDocument encode(T entity, Class<T> clazz) {
+        BsonDocument document = new BsonDocument();
+        registry.get(clazz).encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        return document;
+    }
+
+    private <T> T decode(BsonDocument document, Class<T> clazz) {
+        return registry.get(clazz).decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    private <T> T decodeBinary(BsonDocument document, Class<T> clazz) {
+        Codec<T> codec = registry.get(clazz);
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        return codec.decode(new BsonBinaryReader(new ByteBufferBsonInput(raw.getByteBuffer())), DecoderContext.builder().build());
+    }
+
+    @Test
+    public void testPolymorphicField() {
+        TestEntityDog dog = new TestEntityDog();
+        dog.setName("Rex");
+        dog.setGoodBoy(true);
+
+        TestEntityCat cat = new TestEntityCat();
+        cat.setName("Tom");
+        cat.setLives(9);
+
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(dog);
+        zoo.setAnimals(Arrays.asList(cat, dog));
+
+        BsonDocument document = encode(zoo, TestEntityZoo.class);
+        Assert.assertEquals("dog", document.getDocument("favourite").getString("_t").getValue());
+        Assert.assertEquals("TestEntityCat", document.getArray("animals").get(0).asDocument().getString("_t").getValue());
+        Assert.assertFalse(document.containsKey("_t"));
+
+        TestEntityZoo returned = decodeBinary(document, TestEntityZoo.class);
+        Assert.assertTrue(returned.getFavourite() instanceof TestEntityDog);
+        Assert.assertTrue(((TestEntityDog) returned.getFavourite()).isGoodBoy());
+        Assert.assertEquals("Rex", returned.getFavourite().getName());
+        Assert.assertTrue(returned.getAnimals().get(0) instanceof TestEntityCat);
+        Assert.assertEquals(9, ((TestEntityCat) returned.getAnimals().get(0)).getLives());
+        Assert.assertTrue(returned.getAnimals().get(1) instanceof TestEntityDog);
+    }
+
+    @Test
+    public void testDiscriminatorNotFirst() {
+        BsonDocument document = new BsonDocument("name", new BsonString("Tom"))
+                .append("lives", new BsonInt32(3))
+                .append("_t", new BsonString("TestEntityCat"));
+
+        TestEntityAnimal animal = decode(document, TestEntityAnimal.class);
+        Assert.assertTrue(animal instanceof TestEntityCat);
+        Assert.assertEquals("Tom", animal.getName());
+        Assert.assertEquals(3, ((TestEntityCat) animal).getLives());
+    }
+
+    @Test
+    public void testSubclassEncodedThroughBaseCodec() {
+        TestEntityCat cat = new TestEntityCat();
+        cat.setLives(2);
+
+        BsonDocument document = encode(cat, TestEntityAnimal.class);
+        Assert.assertEquals("TestEntityCat", document.getString("_t").getValue());
+        Assert.assertEquals(2, document.getInt32("lives").getValue());
+    }
+
+    @Test
+    public void testGeneratedLongId() {
+        CollectibleCodec<TestEntityLongId> codec = (CollectibleCodec<TestEntityLongId>) registry.get(TestEntityLongId.class);
+        TestEntityLongId entity = new TestEntityLongId();
+        entity.setName("long");
+        codec.generateIdIfAbsentFromDocument(entity);
+        Assert.assertNotNull(entity.getId());
+        Assert.assertEquals(new BsonInt64(entity.getId()), codec.getDocumentId(entity));
+
+        BsonDocument document = encode(entity, TestEntityLongId.class);
+        Assert.assertEquals(BsonType.INT64, document.get("_id").getBsonType());
+
+        TestEntityLongId returned = decodeBinary(document, TestEntityLongId.class);
+        Assert.assertEquals(entity.getId(), returned.getId());
+        Assert.assertEquals("long", returned.getName());
+    }
+
+    @Test
+    public void testPrimitiveIdAbsent() {
+        // Projection without id.
+        BsonDocument document = new BsonDocument("name", new BsonString("primitive"));
+        TestEntityPrimitiveId returned = decodeBinary(document, TestEntityPrimitiveId.class);
+        Assert.assertEquals(0, returned.getId());
+        Assert.assertEquals("primitive", returned.getName());
+    }
+
+    @Test
+    public void testUuidId() {
+        CollectibleCodec<TestEntityUuid> codec = (CollectibleCodec<TestEntityUuid>) registry.get(TestEntityUuid.class);
+        TestEntityUuid entity = new TestEntityUuid();
+        codec.generateIdIfAbsentFromDocument(entity);
+        Assert.assertNotNull(entity.getId());
+
+        BsonDocument document = encode(entity, TestEntityUuid.class);
+        Assert.assertEquals(BsonBinarySubType.UUID_STANDARD.getValue(), document.getBinary("_id").getType());
+        Assert.assertEquals(document.get("_id"), codec.getDocumentId(entity));
+
+        TestEntityUuid returned = decodeBinary(document, TestEntityUuid.class);
+        Assert.assertEquals(entity.getId(), returned.getId());
+    }
+
+    @Test
+    public void testStringId() {
+        CollectibleCodec<TestEntity> codec = (CollectibleCodec<TestEntity>) registry.get(TestEntity.class);
+        TestEntity entity = new TestEntity();
+        codec.generateIdIfAbsentFromDocument(entity);
+
+        // Id must be in the same form as stored, otherwise filters built from it would not match.
+        BsonValue id = codec.getDocumentId(entity);
+        Assert.assertEquals(new BsonString(entity.getId()), id);
+        BsonDocument document = new BsonDocument();
+        ((Codec<TestEntity>) codec).encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        Assert.assertEquals(document.get("_id"), id);
+
+        entity.setId("custom");
+        Assert.assertEquals(new BsonString("custom"), codec.getDocumentId(entity));
+    }
+
+    @Test
+    public void testEnumKeyMap() {
+        TestEntityEnumMap entity = new TestEntityEnumMap();
+        Map<TestEntityEnumMap.QualityOfLife, Number> map = new HashMap<>();
+        map.put(TestEntityEnumMap.QualityOfLife.BEST, 5);
+        map.put(TestEntityEnumMap.QualityOfLife.EVEN_BETTER, 10);
+        entity.setQualityOfLifeMap(map);
+
+        BsonDocument document = encode(entity, TestEntityEnumMap.class);
+        Assert.assertEquals(5, document.getDocument("qualityOfLifeMap").getInt32("BEST").getValue());
+
+        TestEntityEnumMap returned = decodeBinary(document, TestEntityEnumMap.class);
+        Assert.assertTrue(returned.getQualityOfLifeMap() instanceof EnumMap);
+        Assert.assertEquals(map, returned.getQualityOfLifeMap());
+    }
+
+    @Test
+    public void testTypedMaps() {
+        TestEntityTypedMap entity = new TestEntityTypedMap();
+        LinkedHashMap<Long, String> ordered = new LinkedHashMap<>();
+        ordered.put(3L, "c");
+        ordered.put(1L, "a");
+        entity.setOrdered(ordered);
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        sorted.put("b", 2);
+        sorted.put("a", 1);
+        entity.setSorted(sorted);
+        TestEntityEmbedded embedded = new TestEntityEmbedded();
+        embedded.setName("e");
+        ObjectId key = new ObjectId();
+        entity.setById(Collections.singletonMap(key, embedded));
+        entity.setEnums(Collections.singletonMap(TestEntityEnum.Type.HIGH, TestEntityEnum.Type.HIGH));
+
+        TestEntityTypedMap returned = decodeBinary(encode(entity, TestEntityTypedMap.class), TestEntityTypedMap.class);
+        Assert.assertEquals(Arrays.asList(3L, 1L), new ArrayList<>(returned.getOrdered().keySet()));
+        Assert.assertEquals(sorted, returned.getSorted());
+        Assert.assertEquals(embedded, returned.getById().get(key));
+        Assert.assertEquals(TestEntityEnum.Type.HIGH, returned.getEnums().get(TestEntityEnum.Type.HIGH));
+    }
+
+    @Test
+    public void testNestedGenerics() {
+        TestEntityEmbedded embedded = new TestEntityEmbedded();
+        embedded.setName("e");
+        embedded.setAge(3);
+
+        TestEntityNested entity = new TestEntityNested();
+        entity.setMatrix(Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)));
+        entity.setGroups(Collections.singletonMap("g", Collections.singletonList(embedded)));
+        entity.setTypes(EnumSet.of(TestEntityEnum.Type.HIGH));
+        entity.setTags(new TreeSet<>(Arrays.asList("b", "a")));
+        entity.setQueue(new ArrayDeque<>(Arrays.asList(1L, 2L)));
+        entity.setNumbers(new int[]{4, 5});
+        entity.setEmbeddedArray(new TestEntityEmbedded[]{embedded});
+
+        TestEntityNested returned = decodeBinary(encode(entity, TestEntityNested.class), TestEntityNested.class);
+        Assert.assertEquals(entity.getMatrix(), returned.getMatrix());
+        Assert.assertEquals(embedded, returned.getGroups().get("g").get(0));
+        Assert.assertTrue(returned.getTypes() instanceof EnumSet);
+        Assert.assertEquals(entity.getTypes(), returned.getTypes());
+        Assert.assertTrue(returned.getTags() instanceof TreeSet);
+        Assert.assertEquals(entity.getTags(), returned.getTags());
+        Assert.assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(returned.getQueue()));
+        Assert.assertArrayEquals(entity.getNumbers(), returned.getNumbers());
+        Assert.assertArrayEquals(entity.getEmbeddedArray(), returned.getEmbeddedArray());
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        BsonDocument document = BsonDocument.parse("{numbers: [1, {$numberLong: '2'}, 3.0, 4, 5, 6, 7, 8, 9, 10]}");
+        Assert.assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, decodeBinary(document, TestEntityNested.class).getNumbers());
+        Assert.assertArrayEquals(new int[0], decode(BsonDocument.parse("{numbers: []}"), TestEntityNested.class).getNumbers());
+
+        for (String invalid : Arrays.asList("[1, null]", "[1.5]", "[{$numberLong: '1099511627776'}]", "['1']")) {
+            try {
+                decode(BsonDocument.parse("{numbers: " + invalid + "}"), TestEntityNested.class);
+                Assert.fail(invalid);
+            } catch (MongoMapperException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownFieldsSkipped() {
+        BsonDocument document = new BsonDocument("name", new BsonString("n"))
+                .append("unknown", new BsonDocument("a", new BsonArray(Arrays.asList(new BsonInt32(1), new BsonString("x")))));
+
+        TestEntity returned = decode(document, TestEntity.class);
+        Assert.assertEquals("n", returned.getName());
+    }
+
+    @Test
+    public void testStoredNames() {
+        TestEntityShortNamesChild child = new TestEntityShortNamesChild();
+        child.setValue(7);
+
+        TestEntityShortNames entity = new TestEntityShortNames();
+        entity.setId(new ObjectId().toHexString());
+        entity.setName("short");
+        entity.setChild(child);
+        entity.setChildren(Collections.singletonList(child));
+
+        BsonDocument document = encode(entity, TestEntityShortNames.class);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("_id", "n", "c", "cs")), document.keySet());
+        Assert.assertEquals(7, document.getDocument("c").getInt32("v").getValue());
+
+        TestEntityShortNames returned = decodeBinary(document, TestEntityShortNames.class);
+        Assert.assertEquals(entity.getId(), returned.getId());
+        Assert.assertEquals("short", returned.getName());
+        Assert.assertEquals(7, returned.getChild().getValue());
+        Assert.assertEquals(7, returned.getChildren().get(0).getValue());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUnknownDiscriminator() {
+        decode(new BsonDocument("_t", new BsonString("unicorn")), TestEntityAnimal.class);
+    }
+
+    @Test
+    public void testCompressedFields() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("Příliš žluťoučký kůň ");
+        }
+        byte[] payload = new byte[4096];
+        Arrays.fill(payload, (byte) 7);
+
+        TestEntityCompressed entity = new TestEntityCompressed();
+        entity.setText(text.toString());
+        entity.setPayload(payload);
+
+        BsonDocument document = encode(entity, TestEntityCompressed.class);
+        Assert.assertEquals(BsonBinarySubType.USER_DEFINED.getValue(), document.getBinary("text").getType());
+        Assert.assertEquals(BsonBinarySubType.USER_DEFINED.getValue(), document.getBinary("payload").getType());
+        Assert.assertTrue(document.getBinary("payload").getData().length < payload.length);
+
+        TestEntityCompressed returned = decodeBinary(document, TestEntityCompressed.class);
+        Assert.assertEquals(text.toString(), returned.getText());
+        Assert.assertArrayEquals(payload, returned.getPayload());
+    }
+
+    @Test
+    public void testCompressedFieldsBelowThreshold() {
+        TestEntityCompressed entity = new TestEntityCompressed();
+        entity.setText("short");
+        entity.setPayload(new byte[]{1, 2, 3});
+
+        BsonDocument document = encode(entity, TestEntityCompressed.class);
+        Assert.assertEquals("short", document.getString("text").getValue());
+        Assert.assertEquals(BsonBinarySubType.BINARY.getValue(), document.getBinary("payload").getType());
+
+        // Values stored before compression was enabled.
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("legacy ");
+        }
+        document.put("text", new BsonString(text.toString()));
+
+        TestEntityCompressed returned = decodeBinary(document, TestEntityCompressed.class);
+        Assert.assertEquals(text.toString(), returned.getText());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, returned.getPayload());
+    }
+
+    @Test
+    public void testDeduplicatedStrings() {
+        BsonDocument document = new BsonDocument("country", new BsonString("CZ"))
+                .append("tags", new BsonArray(Arrays.asList(new BsonString("new"), new BsonString("žlutý"), new BsonString("new"))));
+
+        TestEntityDeduplicated first = decodeBinary(document, TestEntityDeduplicated.class);
+        StringCache cache = MongoMapper.getStringCaches().get(TestEntityDeduplicated.class.getName() + ".country");
+        long hits = cache.getHits();
+        TestEntityDeduplicated second = decodeBinary(document, TestEntityDeduplicated.class);
+        TestEntityDeduplicated third = decode(document, TestEntityDeduplicated.class);
+
+        Assert.assertEquals("CZ", first.getCountry());
+        Assert.assertSame(first.getCountry(), second.getCountry());
+        Assert.assertSame(first.getCountry(), third.getCountry());
+        Assert.assertEquals(Arrays.asList("new", "žlutý", "new"), second.getTags());
+        Assert.assertSame(first.getTags().get(0), second.getTags().get(2));
+        Assert.assertSame(first.getTags().get(1), second.getTags().get(1));
+
+        Assert.assertEquals(hits + 2, cache.getHits());
+        Assert.assertTrue(cache.getSavedBytes() > 0);
+        Assert.assertTrue(MongoMapper.getStringCaches().get("tags").getHits() >= 4);
+    }
+
+    @Test
+    public void testDeduplicatedStringsKeepMark() {
+        BsonDocument document = new BsonDocument("a", new BsonString("first")).append("b", new BsonString("second"));
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        StringCache cache = new StringCache(16);
+
+        for (BsonInput input : Arrays.<BsonInput>asList(SliceableBsonInput.of(raw), new ByteBufferBsonInput(raw.getByteBuffer()))) {
+            BsonBinaryReader reader = new BsonBinaryReader(input);
+            reader.readStartDocument();
+            reader.mark();
+            reader.readBsonType();
+            reader.readName();
+            Assert.assertEquals("first", cache.read(reader));
+            reader.reset();
+
+            Assert.assertEquals(BsonType.STRING, reader.readBsonType());
+            Assert.assertEquals("a", reader.readName());
+            Assert.assertEquals("first", cache.read(reader));
+            reader.readName();
+            Assert.assertEquals("second", cache.read(reader));
+        }
+        Assert.assertTrue(cache.getHits() >= 2);
+    }
+
+    private <T> T decodeInto(BsonDocument document, T target, boolean reuseNested) {
+        ReusingDecoder<T> decoder = (ReusingDecoder<T>) registry.get(target.getClass());
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        return decoder.decodeInto(new BsonBinaryReader(new ByteBufferBsonInput(raw.getByteBuffer())), target, DecoderContext.builder().build(), reuseNested);
+    }
+
+    @Test
+    public void testDecodeInto() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("old", 0);
+
+        TestEntity target = new TestEntity();
+        target.setId(new ObjectId().toHexString());
+        target.setName("old");
+        target.setI(5);
+        target.setJ(7);
+        target.setChecked(true);
+        target.setMap(map);
+
+        BsonDocument document = new BsonDocument("name", new BsonString("new"))
+                .append("map", new BsonDocument("a", new BsonInt32(1)));
+
+        TestEntity returned = decodeInto(document, target, true);
+        Assert.assertSame(target, returned);
+        Assert.assertNull(returned.getId());
+        Assert.assertEquals("new", returned.getName());
+        Assert.assertEquals(0, returned.getI());
+        Assert.assertFalse(returned.isChecked());
+        Assert.assertNull(returned.getJ());
+        Assert.assertSame(map, returned.getMap());
+        Assert.assertEquals(Collections.singletonMap("a", 1), returned.getMap());
+
+        returned = decodeInto(document, target, false);
+        Assert.assertNotSame(map, returned.getMap());
+        Assert.assertEquals(Collections.singletonMap("a", 1), returned.getMap());
+    }
+
+    @Test
+    public void testDecodeIntoNested() {
+        TestEntityEmbedded embedded = new TestEntityEmbedded();
+        embedded.setName("old");
+        TestEntityWithEmbedded target = new TestEntityWithEmbedded();
+        target.setEmbedded(embedded);
+
+        BsonDocument document = new BsonDocument("name", new BsonString("parent"))
+                .append("embedded", new BsonDocument("name", new BsonString("new")).append("age", new BsonInt32(3)));
+
+        TestEntityWithEmbedded returned = decodeInto(document, target, true);
+        Assert.assertSame(embedded, returned.getEmbedded());
+        Assert.assertEquals("new", embedded.getName());
+        Assert.assertEquals(3, embedded.getAge());
+
+        // Unmodifiable collections and different subclasses are replaced.
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(new TestEntityCat());
+        zoo.setAnimals(Collections.emptyList());
+        document = new BsonDocument("favourite", new BsonDocument("_t", new BsonString("dog")).append("name", new BsonString("Rex")))
+                .append("animals", new BsonArray(Collections.singletonList(new BsonDocument("_t", new BsonString("dog")))));
+
+        TestEntityZoo returnedZoo = decodeInto(document, zoo, true);
+        Assert.assertTrue(returnedZoo.getFavourite() instanceof TestEntityDog);
+        Assert.assertEquals("Rex", returnedZoo.getFavourite().getName());
+        Assert.assertEquals(1, returnedZoo.getAnimals().size());
+    }
+
+    @Test
+    public void testProjection() {
+        Assert.assertEquals(BsonDocument.parse("{a: 1, lastName: 1, _id: 0}"), MongoMapper.getProjection(TestEntityIndexedSummary.class));
+        Assert.assertEquals(BsonDocument.parse("{_id: 1, address: 1, a: 1, email: 1}"), MongoMapper.getProjection(TestEntityIndexedView.class));
+
+        ObjectId id = new ObjectId();
+        BsonDocument document = new BsonDocument("_id", new BsonObjectId(id))
+                .append("email", new BsonString("a@b.cz"))
+                .append("lastName", new BsonString("Novák"))
+                .append("a", new BsonInt32(30))
+                .append("addresses", new BsonArray(Collections.singletonList(new BsonDocument("c", new BsonString("Praha")))));
+
+        TestEntityIndexedSummary summary = decodeBinary(document, TestEntityIndexedSummary.class);
+        Assert.assertEquals("Novák", summary.getLastName());
+        Assert.assertEquals(30, summary.getAge());
+
+        TestEntityIndexedView view = decodeBinary(document, TestEntityIndexedView.class);
+        Assert.assertEquals(id, view.getId());
+        Assert.assertEquals("a@b.cz", view.getEmail());
+        Assert.assertEquals(30, view.getAge());
+        Assert.assertNull(view.getAddress());
+        // Getters of super-interface are properties, default methods are computed.
+        Assert.assertEquals("b.cz", view.getDomain());
+        Assert.assertEquals("a@b.cz (30)", view.getLabel());
+        Assert.assertEquals(view, decode(document, TestEntityIndexedView.class));
+        Assert.assertTrue(view.toString().startsWith("TestEntityIndexedView"));
+    }
+
+    @Test
+    public void testRawDocuments() {
+        BsonDocument payload = BsonDocument.parse("{client: {x: 1, tags: ['a', 'b']}, n: 2}");
+        BsonDocument document = new BsonDocument("payload", payload)
+                .append("payloads", new BsonArray(Arrays.asList(payload, new BsonDocument())))
+                .append("after", new BsonString("skipped"));
+
+        TestEntityRaw binary = decodeBinary(document, TestEntityRaw.class);
+        Assert.assertEquals(payload, binary.getPayload());
+        Assert.assertEquals(payload, binary.getPayloads().get(0));
+        Assert.assertEquals(new BsonDocument(), binary.getPayloads().get(1));
+
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        TestEntityRaw sliceable = registry.get(TestEntityRaw.class).decode(new BsonBinaryReader(SliceableBsonInput.of(raw)), DecoderContext.builder().build());
+        Assert.assertEquals(payload, sliceable.getPayload());
+        Assert.assertEquals(payload, sliceable.getPayloads().get(0));
+        Assert.assertEquals(sliceable.getPayload().getByteBuffer().remaining(), sliceable.getPayload().getByteBuffer().capacity());
+
+        TestEntityRaw returned = decode(document, TestEntityRaw.class);
+        Assert.assertEquals(payload, returned.getPayload());
+
+        BsonDocument encoded = encode(binary, TestEntityRaw.class);
+        Assert.assertEquals(payload, encoded.getDocument("payload"));
+        Assert.assertEquals(payload, encoded.getArray("payloads").get(0));
+    }
+
+    @Test
+    public void testByteBufferSlices() {
+        BsonDocument document = new BsonDocument("data", new BsonBinary(new byte[]{1, 2, 3, 4}));
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        Codec<TestEntityByteBuffer> codec = registry.get(TestEntityByteBuffer.class);
+
+        TestEntityByteBuffer shared = codec.decode(new BsonBinaryReader(SliceableBsonInput.of(raw)), DecoderContext.builder().build());
+        TestEntityByteBuffer copied = codec.decode(new BsonBinaryReader(new SliceableBsonInput(raw.getByteBuffer().asNIO(), false)), DecoderContext.builder().build());
+        TestEntityByteBuffer plain = decode(document, TestEntityByteBuffer.class);
+
+        Assert.assertTrue(shared.getData().isReadOnly());
+        Assert.assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), shared.getData());
+        Assert.assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), copied.getData());
+        Assert.assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), plain.getData());
+
+        // Shared slice is a view of the raw document bytes.
+        byte[] bytes = raw.getByteBuffer().array();
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == 4) {
+                bytes[i] = 9;
+            }
+        }
+        Assert.assertEquals(9, shared.getData().get(3));
+        Assert.assertEquals(4, copied.getData().get(3));
+
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 9}, encode(shared, TestEntityByteBuffer.class).getBinary("data").getData());
+    }
+
+    @Test
+    public void testByteBufferOldBinary() {
+        BsonDocument document = new BsonDocument("data", new BsonBinary(BsonBinarySubType.OLD_BINARY, new byte[]{1, 2, 3}));
+        RawBsonDocument raw = new RawBsonDocument(document, registry.get(BsonDocument.class));
+        BsonBinaryReader reader = new BsonBinaryReader(SliceableBsonInput.of(raw));
+        reader.readStartDocument();
+        reader.mark();
+        reader.readName();
+        Assert.assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), new ByteBufferCodec().decode(reader, DecoderContext.builder().build()));
+
+        // Mark of the reader is kept.
+        reader.reset();
+        Assert.assertEquals("data", reader.readName());
+    }
+
+    @Test
+    public void testJavaTime() {
+        TestEntityTime entity = new TestEntityTime();
+        entity.setCreated(Instant.ofEpochMilli(1490491800123L));
+        entity.setDays(Arrays.asList(LocalDate.of(2017, 3, 26), LocalDate.of(2017, 3, 27)));
+
+        BsonDocument document = encode(entity, TestEntityTime.class);
+        Assert.assertEquals(1490491800123L, document.getDateTime("created").getValue());
+
+        TestEntityTime returned = decodeBinary(document, TestEntityTime.class);
+        Assert.assertEquals(entity.getCreated(), returned.getCreated());
+        Assert.assertEquals(entity.getDays(), returned.getDays());
+    }
+
+    @Test
+    public void testSparse() {
+        TestEntitySparse entity = new TestEntitySparse();
+        entity.setId("id");
+        entity.setPriority(0);
+        entity.setTags(new TreeSet<>());
+        entity.setCounts(new HashMap<>());
+        entity.setValues(new int[0]);
+
+        BsonDocument document = encode(entity, TestEntitySparse.class);
+        Assert.assertEquals(BsonDocument.parse("{_id: 'id', note: null}"), document);
+
+        TestEntitySparse returned = decodeBinary(document, TestEntitySparse.class);
+        Assert.assertNull(returned.getName());
+        Assert.assertEquals(0, returned.getPriority());
+        Assert.assertFalse(returned.isActive());
+        Assert.assertTrue(returned.getTags() instanceof SortedSet);
+        Assert.assertTrue(returned.getTags().isEmpty());
+        Assert.assertTrue(returned.getCounts().isEmpty());
+        Assert.assertEquals(0, returned.getValues().length);
+
+        entity.setName("name");
+        entity.setPriority(2);
+        entity.setTags(new TreeSet<>(Collections.singleton("a")));
+        document = encode(entity, TestEntitySparse.class);
+        Assert.assertEquals(BsonDocument.parse("{_id: 'id', name: 'name', note: null, priority: 2, tags: ['a']}"), document);
+    }
+}
@@ -0,0 +1,227 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.model.Filters;
+import eu.dozd.mongo.entity.*;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.ValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+public class EntityFilterTest {
+
+    private CodecRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+    }
+
+    private <T> boolean matches(Class<T> clazz, T entity, String filter) {
+        return matches(clazz, entity, BsonDocument.parse(filter), filter);
+    }
+
+    private <T> boolean matches(Class<T> clazz, T entity, BsonDocument filter) {
+        // JSON of binaries needs JAXB, which is missing on newer JDKs.
+        return matches(clazz, entity, filter, filter.keySet().toString());
+    }
+
+    private <T> boolean matches(Class<T> clazz, T entity, BsonDocument filter, String message) {
+        EntityFilter<T> entityFilter = new EntityFilter<>(clazz, filter);
+        boolean result = entityFilter.test(entity);
+
+        // Raw document matches the same way.
+        BsonDocument document = new BsonDocument();
+        registry.get(clazz).encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        Assert.assertEquals(message, result, entityFilter.matches(document));
+        return result;
+    }
+
+    @Test
+    public void testComparisons() {
+        TestEntity entity = new TestEntity();
+        entity.setName("name");
+        entity.setI(5);
+        entity.setJ(7);
+        entity.setMap(new HashMap<>(Collections.singletonMap("a", 1)));
+
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: 'name', i: 5}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{i: {$numberLong: '5'}, j: 7.0}"));
+        Assert.assertFalse(matches(TestEntity.class, entity, "{name: 'name', i: 6}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{i: {$gt: 4.5, $lte: 5}}"));
+        Assert.assertFalse(matches(TestEntity.class, entity, "{i: {$lt: 5}}"));
+        Assert.assertFalse(matches(TestEntity.class, entity, "{name: {$gt: 1}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: {$gte: 'n', $lt: 'o'}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{i: {$in: [1, 5]}, j: {$nin: [1, 5]}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{i: {$ne: 6}, name: {$not: {$regex: '^x'}}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: {$regex: 'NA', $options: 'i'}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: /^na/}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, new BsonDocument("name",
+                new BsonDocument("$regex", new BsonRegularExpression("^NA", "i")))));
+        Assert.assertTrue(matches(TestEntity.class, entity, new BsonDocument("name",
+                new BsonDocument("$regex", new BsonRegularExpression("^NA")).append("$options", new BsonString("i")))));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{'map.a': 1, map: {a: 1}}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{'map.b': null, 'map.c': {$exists: false}, name: {$exists: true}}"));
+    }
+
+    @Test
+    public void testLogical() {
+        TestEntity entity = new TestEntity();
+        entity.setI(5);
+        entity.setJ(0);
+
+        Assert.assertTrue(matches(TestEntity.class, entity, "{$or: [{i: 1}, {i: 5}]}"));
+        Assert.assertFalse(matches(TestEntity.class, entity, "{$nor: [{i: 1}, {i: 5}]}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{$and: [{i: {$gt: 1}}, {$or: [{name: null}, {name: 'x'}]}]}"));
+    }
+
+    @Test
+    public void testEmbeddedPaths() {
+        TestEntityShortNamesChild first = new TestEntityShortNamesChild();
+        first.setValue(1);
+        TestEntityShortNamesChild second = new TestEntityShortNamesChild();
+        second.setValue(2);
+        TestEntityShortNames entity = new TestEntityShortNames();
+        entity.setName("name");
+        entity.setChild(first);
+        entity.setChildren(Arrays.asList(first, second));
+
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{'c.v': 1, n: 'name'}"));
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{'cs.v': 2}"));
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{'cs.1.v': {$gte: 2}}"));
+        Assert.assertFalse(matches(TestEntityShortNames.class, entity, "{'cs.0.v': 2}"));
+        Assert.assertFalse(matches(TestEntityShortNames.class, entity, "{'cs.v': {$ne: 2}}"));
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{'cs.v': {$nin: [3, 4]}}"));
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{c: {v: 1}, cs: [{v: 1}, {v: 2}]}"));
+        Assert.assertFalse(matches(TestEntityShortNames.class, entity, "{c: {v: 1, w: 2}}"));
+        Assert.assertTrue(matches(TestEntityShortNames.class, entity, "{cs: {v: 2}, 'cs.2': {$exists: false}}"));
+    }
+
+    @Test
+    public void testExistsNull() {
+        TestEntity entity = new TestEntity();
+        entity.setJ(1);
+        TestEntitySparse sparse = new TestEntitySparse();
+        sparse.setPriority(0);
+        sparse.setTags(new TreeSet<>());
+
+        // Stored null exists, omitted values don't.
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: {$exists: true}, 'map': null}"));
+        Assert.assertTrue(matches(TestEntity.class, entity, "{name: null, _id: {$exists: false}}"));
+        Assert.assertTrue(matches(TestEntitySparse.class, sparse, "{note: {$exists: true}, name: {$exists: false, $eq: null}}"));
+        Assert.assertTrue(matches(TestEntitySparse.class, sparse, "{priority: {$exists: false}, tags: {$exists: false}}"));
+        Assert.assertFalse(matches(TestEntitySparse.class, sparse, "{priority: 0}"));
+    }
+
+    @Test
+    public void testRegistryMappings() {
+        TestEntity entity = new TestEntity();
+        entity.setName("name");
+
+        // Registry without the mapper has no mapped properties.
+        EntityFilter<TestEntity> filter = new EntityFilter<>(TestEntity.class, BsonDocument.parse("{name: {$exists: false}}"),
+                CodecRegistries.fromProviders(new ValueCodecProvider()));
+        Assert.assertTrue(filter.test(entity));
+        Assert.assertFalse(new EntityFilter<>(TestEntity.class, BsonDocument.parse("{name: {$exists: false}}")).test(entity));
+    }
+
+    @Test
+    public void testPolymorphicPaths() {
+        TestEntityCat cat = new TestEntityCat();
+        cat.setLives(9);
+        TestEntityDog dog = new TestEntityDog();
+        dog.setName("Rex");
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(cat);
+        zoo.setAnimals(Arrays.asList(cat, dog));
+
+        Assert.assertTrue(matches(TestEntityZoo.class, zoo, "{'favourite.lives': {$gt: 8}, 'animals.name': 'Rex'}"));
+        Assert.assertFalse(matches(TestEntityZoo.class, zoo, "{'favourite.goodBoy': true}"));
+    }
+
+    @Test
+    public void testFiltersBuilder() {
+        TestEntityMeasurement measurement = new TestEntityMeasurement();
+        measurement.setValue(1.5);
+        measurement.setTime(new Date(2000));
+
+        EntityFilter<TestEntityMeasurement> filter = new EntityFilter<>(TestEntityMeasurement.class,
+                Filters.and(Filters.gt("v", 1), Filters.lt("time", new Date(3000)), Filters.eq("count", null)));
+        Assert.assertTrue(filter.test(measurement));
+
+        measurement.setTime(new Date(3000));
+        Assert.assertFalse(filter.test(measurement));
+    }
+
+    @Test
+    public void testJavaTime() {
+        TestEntityTime entity = new TestEntityTime();
+        entity.setUpdated(LocalDateTime.of(2020, 1, 2, 3, 4, 5));
+        entity.setPublished(OffsetDateTime.of(2020, 1, 2, 4, 4, 5, 0, ZoneOffset.ofHours(1)));
+        entity.setDays(Collections.singletonList(LocalDate.of(2020, 1, 2)));
+
+        // 2020-01-02T03:04:05Z, local values are stored in UTC by default.
+        Assert.assertTrue(matches(TestEntityTime.class, entity, "{updated: {$date: 1577934245000}, published: {$date: 1577934245000}}"));
+        Assert.assertTrue(matches(TestEntityTime.class, entity, "{updated: {$gt: {$date: 1577934244999}}, published: {$lte: {$date: 1577934245000}}}"));
+        Assert.assertFalse(matches(TestEntityTime.class, entity, "{published: {$lt: {$date: 1577934245000}}}"));
+        Assert.assertTrue(matches(TestEntityTime.class, entity, "{days: {$date: 1577923200000}}"));
+        Assert.assertFalse(matches(TestEntityTime.class, entity, "{days: {$gt: {$date: 1577923200000}}}"));
+    }
+
+    @Test
+    public void testUuid() {
+        TestEntityUuid entity = new TestEntityUuid();
+        entity.setId(UUID.randomUUID());
+        entity.setParent(UUID.randomUUID());
+
+        Assert.assertTrue(matches(TestEntityUuid.class, entity, new BsonDocument("_id", toBinary(entity.getId(), false))));
+        Assert.assertTrue(matches(TestEntityUuid.class, entity, new BsonDocument("parent", toBinary(entity.getParent(), false))));
+        Assert.assertTrue(matches(TestEntityUuid.class, entity, new BsonDocument("parent",
+                new BsonDocument("$in", new BsonArray(Collections.singletonList(toBinary(entity.getParent(), true)))))));
+        Assert.assertFalse(matches(TestEntityUuid.class, entity, new BsonDocument("parent", toBinary(entity.getId(), false))));
+    }
+
+    /**
+     * @return binary of UUID in standard subtype or legacy subtype of Java driver.
+     */
+    private static BsonBinary toBinary(UUID uuid, boolean legacy) {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        if (legacy) {
+            bytes.putLong(Long.reverseBytes(uuid.getMostSignificantBits())).putLong(Long.reverseBytes(uuid.getLeastSignificantBits()));
+            return new BsonBinary(BsonBinarySubType.UUID_LEGACY, bytes.array());
+        }
+        bytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return new BsonBinary(BsonBinarySubType.UUID_STANDARD, bytes.array());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUnknownProperty() {
+        new EntityFilter<>(TestEntityShortNames.class, BsonDocument.parse("{'c.unknown': 1}"));
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUnsupportedOperator() {
+        new EntityFilter<>(TestEntity.class, BsonDocument.parse("{i: {$mod: [2, 0]}}"));
+    }
+}
@@ -2,6 +2,7 @@ package eu.dozd.mongo;
 
 import eu.dozd.mongo.annotation.Id;
 import eu.dozd.mongo.entity.TestEntity;
+import eu.dozd.mongo.entity.TestEntityLongId;
 import org.bson.types.ObjectId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -31,6 +32,15 @@ public class EntityInfoWithIdTest {
 
     }
 
+    @Test
+    public void testEntitySetNumericId() {
+        TestEntityLongId e = new TestEntityLongId();
+        EntityInfo i = new EntityInfoWithId(TestEntityLongId.class);
+        i.setId(e, 5);
+        Assert.assertEquals(Long.valueOf(5), e.getId());
+        Assert.assertTrue(i.getIdGenerator() instanceof TestEntityLongId.SequenceGenerator);
+    }
+
     @Test
     public void testEntityGetId() {
         entity.setId("ahoj");
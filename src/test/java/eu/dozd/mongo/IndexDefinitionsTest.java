@@ -0,0 +1,48 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.model.IndexModel;
+import eu.dozd.mongo.entity.TestEntityIndexed;
+import org.bson.BsonDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class IndexDefinitionsTest {
+
+    @Test
+    public void testIndexes() {
+        List<IndexModel> indexes = MongoMapper.getIndexes(TestEntityIndexed.class);
+        Assert.assertEquals(6, indexes.size());
+
+        Map<String, IndexModel> byKeys = new HashMap<>();
+        for (IndexModel index : indexes) {
+            byKeys.put(((BsonDocument) index.getKeys()).toJson(), index);
+        }
+
+        IndexModel compound = byKeys.get("{ \"lastName\" : 1, \"a\" : -1 }");
+        Assert.assertTrue(compound.getOptions().isUnique());
+        Assert.assertEquals("name_age", compound.getOptions().getName());
+
+        IndexModel partial = byKeys.get("{ \"lastName\" : 1 }");
+        Assert.assertEquals(BsonDocument.parse("{a: {$gte: 18}}"), partial.getOptions().getPartialFilterExpression());
+        IndexModel nestedPartial = byKeys.get("{ \"email\" : 1, \"created\" : 1 }");
+        Assert.assertEquals(BsonDocument.parse("{$and: [{a: {$gt: 0}}, {'addresses.c': {$exists: true}}]}"),
+                nestedPartial.getOptions().getPartialFilterExpression());
+
+        Assert.assertTrue(byKeys.get("{ \"email\" : 1 }").getOptions().isUnique());
+        Assert.assertEquals(Long.valueOf(3600), byKeys.get("{ \"created\" : 1 }").getOptions().getExpireAfter(TimeUnit.SECONDS));
+
+        IndexModel embedded = byKeys.get("{ \"addresses.c\" : -1 }");
+        Assert.assertTrue(embedded.getOptions().isSparse());
+        Assert.assertFalse(embedded.getOptions().isUnique());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testNotMapped() {
+        MongoMapper.getIndexes(String.class);
+    }
+}
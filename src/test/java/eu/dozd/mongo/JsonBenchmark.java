@@ -0,0 +1,60 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.TestEntity;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.HashMap;
+import java.util.function.Supplier;
+
+/**
+ * Compares JSON serialization through intermediate document with {@link JsonSerializer}. Not run by tests, run its
+ * main method with test classpath.
+ */
+public class JsonBenchmark {
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        CodecRegistry registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+        Codec<TestEntity> codec = registry.get(TestEntity.class);
+        JsonSerializer serializer = new JsonSerializer(registry);
+
+        TestEntity entity = new TestEntity();
+        entity.setId("5890d6c1a4b0c2e1f0a1b2c3");
+        entity.setName("Benchmark entity");
+        entity.setI(42);
+        entity.setJ(7);
+        entity.setMap(new HashMap<>());
+        for (int i = 0; i < 10; i++) {
+            entity.getMap().put("key" + i, i);
+        }
+        String json = serializer.toJson(entity);
+
+        for (int round = 0; round < 3; round++) {
+            run("encode through document", () -> {
+                BsonDocument document = new BsonDocument();
+                codec.encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+                return document.toJson();
+            });
+            run("encode by JsonSerializer", () -> serializer.toJson(entity));
+            run("decode through document", () -> codec.decode(new BsonDocumentReader(BsonDocument.parse(json)), DecoderContext.builder().build()));
+            run("decode by JsonSerializer", () -> serializer.fromJson(json, TestEntity.class));
+        }
+    }
+
+    private static void run(String name, Supplier<Object> operation) {
+        int hash = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            hash += operation.get().hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-26s %8d ops/s (%d)%n", name, ITERATIONS * 1_000_000_000L / elapsed, hash);
+    }
+}
@@ -0,0 +1,80 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.*;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+public class JsonSerializerTest {
+
+    private CodecRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        TestEntity entity = new TestEntity();
+        entity.setId("id");
+        entity.setName("name \"quoted\"");
+        entity.setI(5);
+        entity.setJ(7);
+        entity.setMap(new HashMap<>(Collections.singletonMap("a", 1)));
+
+        JsonSerializer serializer = new JsonSerializer(registry);
+        String json = serializer.toJson(entity);
+        Assert.assertEquals(BsonDocument.parse(json), BsonDocument.parse("{_id: 'id', i: 5, checked: false, name: 'name \"quoted\"', j: 7, map: {a: 1}}"));
+
+        TestEntity returned = serializer.fromJson(json, TestEntity.class);
+        Assert.assertEquals("name \"quoted\"", returned.getName());
+        Assert.assertEquals(5, returned.getI());
+        Assert.assertEquals(entity.getMap(), returned.getMap());
+    }
+
+    @Test
+    public void testPolymorphic() {
+        TestEntityDog dog = new TestEntityDog();
+        dog.setName("Rex");
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setId("zoo");
+        zoo.setAnimals(Arrays.asList(new TestEntityCat(), dog));
+
+        JsonSerializer serializer = new JsonSerializer(registry);
+        StringWriter writer = new StringWriter();
+        serializer.toJson(zoo, writer);
+
+        TestEntityZoo returned = serializer.fromJson(writer.toString(), TestEntityZoo.class);
+        Assert.assertTrue(returned.getAnimals().get(0) instanceof TestEntityCat);
+        Assert.assertEquals("Rex", returned.getAnimals().get(1).getName());
+    }
+
+    @Test
+    public void testShellMode() {
+        TestEntityMeasurement measurement = new TestEntityMeasurement();
+        measurement.setId(new ObjectId().toHexString());
+        measurement.setTime(new Date(1000));
+        measurement.setCount(3L);
+
+        JsonSerializer serializer = new JsonSerializer(registry, new JsonWriterSettings(JsonMode.SHELL));
+        String json = serializer.toJson(measurement);
+        Assert.assertTrue(json.contains("ISODate("));
+
+        TestEntityMeasurement returned = serializer.fromJson(json, TestEntityMeasurement.class);
+        Assert.assertEquals(new Date(1000), returned.getTime());
+        Assert.assertEquals(Long.valueOf(3), returned.getCount());
+    }
+}
@@ -1,11 +1,16 @@
 package eu.dozd.mongo;
 
 import eu.dozd.mongo.entity.TestEntity;
+import eu.dozd.mongo.entity.TestEntityAnimal;
+import eu.dozd.mongo.entity.TestEntityShortNames;
+import eu.dozd.mongo.entity.TestEntityTagged;
 import org.bson.codecs.Codec;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Map;
+
 public class MapperCodecProviderTest {
 
     private MapperCodecProvider provider;
@@ -21,6 +26,58 @@ public class MapperCodecProviderTest {
         Assert.assertNotNull(codec);
     }
 
+    @Test
+    public void testCodecCached() {
+        Assert.assertSame(provider.get(TestEntity.class, null), provider.get(TestEntity.class, null));
+    }
+
+    @Test
+    public void testWarmUp() {
+        Map<Class<?>, Long> times = provider.warmUp(10);
+        Assert.assertTrue(times.containsKey(TestEntity.class));
+        Assert.assertTrue(times.containsKey(TestEntityAnimal.class));
+        Assert.assertTrue(times.get(TestEntity.class) > 0);
+    }
+
+    @Test
+    public void testWarmUpDecodesProperties() {
+        provider.warmUp(1);
+        long before = getLookups();
+        provider.warmUp(2);
+        // Sample documents have values of all properties, so decoders of deduplicated strings run.
+        Assert.assertTrue(getLookups() >= before + 2 * 3);
+    }
+
+    private static long getLookups() {
+        long lookups = 0;
+        for (StringCache cache : MongoMapper.getStringCaches().values()) {
+            lookups += cache.getHits() + cache.getMisses();
+        }
+        return lookups;
+    }
+
+    @Test
+    public void testCodecNotReusedAfterConfigurationChange() {
+        EntityCodec<TestEntityTagged> codec = (EntityCodec<TestEntityTagged>) provider.get(TestEntityTagged.class, null);
+        MongoMapper.setIdGenerator(TestEntityTagged.class, () -> "generated");
+
+        EntityCodec<TestEntityTagged> updated = (EntityCodec<TestEntityTagged>) provider.get(TestEntityTagged.class, null);
+        Assert.assertNotSame(codec, updated);
+        Assert.assertEquals("generated", updated.generateIdIfAbsentFromDocument(new TestEntityTagged()).getId());
+    }
+
+    @Test
+    public void testGetStoredPath() {
+        Assert.assertEquals("_id", provider.getStoredPath(TestEntityShortNames.class, "id"));
+        Assert.assertEquals("n", provider.getStoredPath(TestEntityShortNames.class, "name"));
+        Assert.assertEquals("c.v", provider.getStoredPath(TestEntityShortNames.class, "child.value"));
+        Assert.assertEquals("cs.v", provider.getStoredPath(TestEntityShortNames.class, "children.value"));
+        Assert.assertEquals("cs.0.v", provider.getStoredPath(TestEntityShortNames.class, "children.0.value"));
+        Assert.assertEquals("cs.$.v", provider.getStoredPath(TestEntityShortNames.class, "children.$.value"));
+        Assert.assertEquals("map.key", provider.getStoredPath(TestEntity.class, "map.key"));
+        Assert.assertEquals("unknown.x", provider.getStoredPath(TestEntity.class, "unknown.x"));
+    }
+
     @Test
     public void testGetCodecNotFound() {
         Assert.assertNull(provider.get(this.getClass(), null));
@@ -4,7 +4,6 @@ import com.mongodb.client.MongoCollection;
 import eu.dozd.mongo.entity.*;
 import org.bson.*;
 import org.junit.Assert;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import java.math.BigDecimal;
@@ -214,7 +213,6 @@ public class MongoMapperIT extends AbstractMongoIT {
     }
 
     @Test
-    @Ignore("Ignored for now because there is no quick fix.")
     public void testEnumMap() throws Exception {
         MongoCollection<TestEntityEnumMap> collection = db.getCollection("test_embedded", TestEntityEnumMap.class);
         collection.drop();
@@ -0,0 +1,137 @@
+package eu.dozd.mongo;
+
+import com.mongodb.client.result.UpdateResult;
+import eu.dozd.mongo.annotation.Version;
+import eu.dozd.mongo.entity.TestEntityVersioned;
+import eu.dozd.mongo.entity.TestEntityVersionedStringId;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OptimisticLockingTest {
+
+    private CodecRegistry registry;
+    private OptimisticLocking locking;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = CodecRegistries.fromProviders(MongoMapper.getProviders());
+        locking = new OptimisticLocking(registry);
+    }
+
+    @Test
+    public void testVersionSetOnInsert() {
+        TestEntityVersioned entity = new TestEntityVersioned();
+        ((CollectibleCodec<TestEntityVersioned>) registry.get(TestEntityVersioned.class)).generateIdIfAbsentFromDocument(entity);
+
+        Assert.assertNotNull(entity.getId());
+        Assert.assertEquals(Long.valueOf(0), entity.getVersion());
+    }
+
+    @Test
+    public void testReplace() {
+        TestEntityVersioned entity = createEntity(3);
+
+        BsonDocument filter = locking.prepareReplace(entity);
+        Assert.assertEquals(new BsonDocument("_id", new BsonObjectId(entity.getId())).append("v", new BsonInt64(3)), filter);
+        Assert.assertEquals(Long.valueOf(4), entity.getVersion());
+
+        locking.checkResult(entity, UpdateResult.acknowledged(1, 1L, null));
+        Assert.assertEquals(Long.valueOf(4), entity.getVersion());
+    }
+
+    @Test
+    public void testUpdate() {
+        TestEntityVersioned entity = createEntity(3);
+
+        BsonDocument filter = locking.getFilter(entity);
+        BsonDocument update = locking.prepareUpdate(entity, BsonDocument.parse("{$set: {name: 'new'}, $inc: {count: 1}}"));
+
+        Assert.assertEquals(new BsonInt64(3), filter.get("v"));
+        Assert.assertEquals(BsonDocument.parse("{$set: {name: 'new'}, $inc: {count: 1, v: 1}}"), update);
+        Assert.assertEquals(Long.valueOf(4), entity.getVersion());
+    }
+
+    @Test
+    public void testConflict() {
+        TestEntityVersioned entity = createEntity(3);
+        locking.prepareReplace(entity);
+
+        try {
+            locking.checkResult(entity, UpdateResult.acknowledged(0, 0L, null));
+            Assert.fail();
+        } catch (VersionConflictException e) {
+            Assert.assertSame(entity, e.getEntity());
+            Assert.assertEquals(3L, e.getExpectedVersion());
+        }
+        Assert.assertEquals(Long.valueOf(3), entity.getVersion());
+    }
+
+    @Test
+    public void testRestoreVersion() {
+        TestEntityVersioned entity = createEntity(3);
+        locking.prepareReplace(entity);
+
+        // Write failed, entity is written again with the same filter.
+        locking.restoreVersion(entity);
+        Assert.assertEquals(Long.valueOf(3), entity.getVersion());
+        Assert.assertEquals(new BsonInt64(3), locking.prepareReplace(entity).get("v"));
+    }
+
+    @Test
+    public void testStringId() {
+        TestEntityVersionedStringId entity = new TestEntityVersionedStringId();
+        Codec<TestEntityVersionedStringId> codec = registry.get(TestEntityVersionedStringId.class);
+        ((CollectibleCodec<TestEntityVersionedStringId>) codec).generateIdIfAbsentFromDocument(entity);
+
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+
+        // Filter must match the stored document, generated String id is stored as string.
+        BsonDocument filter = locking.prepareReplace(entity);
+        Assert.assertEquals(new BsonDocument("_id", document.get("_id")).append("version", new BsonInt32(0)), filter);
+        locking.checkResult(entity, UpdateResult.acknowledged(1, 1L, null));
+        Assert.assertEquals(Integer.valueOf(1), entity.getVersion());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUpdateOfVersion() {
+        locking.prepareUpdate(createEntity(1), BsonDocument.parse("{$set: {v: 5}}"));
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testInvalidVersionType() {
+        new EntityInfo(InvalidVersion.class);
+    }
+
+    private static TestEntityVersioned createEntity(long version) {
+        TestEntityVersioned entity = new TestEntityVersioned();
+        entity.setId(new ObjectId());
+        entity.setVersion(version);
+        return entity;
+    }
+
+    public static class InvalidVersion {
+        @Version
+        private String version;
+
+        public String getVersion() {
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package eu.dozd.mongo;
+
+import eu.dozd.mongo.entity.*;
+import org.bson.*;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+public class UpdateApplierTest {
+
+    private UpdateApplier applier;
+
+    @Before
+    public void setUp() throws Exception {
+        applier = new UpdateApplier(CodecRegistries.fromProviders(MongoMapper.getProviders()));
+    }
+
+    @Test
+    public void testSetAndUnset() {
+        TestEntity entity = new TestEntity();
+        entity.setName("old");
+        entity.setI(5);
+        entity.setMap(new HashMap<>(Collections.singletonMap("a", 1)));
+
+        applier.apply(entity, BsonDocument.parse("{$set: {name: 'new', 'map.b': 2, unknown: 1}, $unset: {i: '', 'map.a': ''}}"));
+
+        Assert.assertEquals("new", entity.getName());
+        Assert.assertEquals(0, entity.getI());
+        Assert.assertEquals(Collections.singletonMap("b", 2), entity.getMap());
+    }
+
+    @Test
+    public void testUnsetSparse() {
+        TestEntitySparse entity = new TestEntitySparse();
+        entity.setTags(new TreeSet<>(Collections.singleton("a")));
+        entity.setCounts(new HashMap<>(Collections.singletonMap("a", 1)));
+        entity.setValues(new int[]{1});
+        entity.setNote("note");
+
+        applier.apply(entity, BsonDocument.parse("{$unset: {priority: '', tags: '', counts: '', values: '', note: ''}}"));
+
+        // Same values as decoded from document without these properties.
+        Assert.assertEquals(0, entity.getPriority());
+        Assert.assertEquals(new TreeSet<>(), entity.getTags());
+        Assert.assertEquals(new HashMap<>(), entity.getCounts());
+        Assert.assertEquals(0, entity.getValues().length);
+        Assert.assertNull(entity.getNote());
+    }
+
+    @Test
+    public void testStoredNamesAndLists() {
+        TestEntityShortNames entity = new TestEntityShortNames();
+        entity.setChildren(new ArrayList<>());
+
+        applier.set(entity, "c.v", new BsonInt32(3));
+        applier.set(entity, "cs.1.v", new BsonInt32(4));
+        applier.set(entity, "n", new BsonString("name"));
+
+        Assert.assertEquals(3, entity.getChild().getValue());
+        Assert.assertEquals(2, entity.getChildren().size());
+        Assert.assertNull(entity.getChildren().get(0));
+        Assert.assertEquals(4, entity.getChildren().get(1).getValue());
+        Assert.assertEquals("name", entity.getName());
+
+        applier.unset(entity, "cs.1");
+        Assert.assertNull(entity.getChildren().get(1));
+    }
+
+    @Test
+    public void testPolymorphicEmbedded() {
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(new TestEntityDog());
+
+        applier.set(zoo, "favourite.goodBoy", BsonBoolean.TRUE);
+        Assert.assertTrue(((TestEntityDog) zoo.getFavourite()).isGoodBoy());
+
+        applier.set(zoo, "favourite", BsonDocument.parse("{_t: 'TestEntityCat', name: 'Tom', lives: 7}"));
+        Assert.assertTrue(zoo.getFavourite() instanceof TestEntityCat);
+        Assert.assertEquals(7, ((TestEntityCat) zoo.getFavourite()).getLives());
+    }
+
+    @Test(expected = MongoMapperException.class)
+    public void testUnsupportedOperator() {
+        applier.apply(new TestEntity(), BsonDocument.parse("{$inc: {i: 1}}"));
+    }
+}
@@ -0,0 +1,74 @@
+package eu.dozd.mongo.codecs.compression;
+
+import org.bson.*;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class CompressedCodecTest {
+
+    private <T> BsonValue encode(CompressedCodec<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        writer.writeName("v");
+        codec.encode(writer, value, EncoderContext.builder().build());
+        writer.writeEndDocument();
+        return document.get("v");
+    }
+
+    private <T> T decode(CompressedCodec<T> codec, BsonValue value) {
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", value));
+        reader.readStartDocument();
+        reader.readName();
+        return codec.decode(reader, DecoderContext.builder().build());
+    }
+
+    @Test
+    public void testIncompressibleValueStoredPlain() {
+        byte[] random = new byte[2048];
+        new Random(42).nextBytes(random);
+
+        CompressedCodec<byte[]> codec = new CompressedCodec<>(byte[].class, 16, new DeflateCompressor());
+        BsonValue value = encode(codec, random);
+        Assert.assertEquals(BsonBinarySubType.BINARY.getValue(), value.asBinary().getType());
+        Assert.assertArrayEquals(random, decode(codec, value));
+    }
+
+    @Test
+    public void testStringCompressedAsBinaryDecodedAsString() {
+        String text = new String(new char[1000]).replace('\0', 'a');
+
+        CompressedCodec<String> codec = new CompressedCodec<>(String.class, 16, new DeflateCompressor());
+        BsonValue value = encode(codec, text);
+        Assert.assertTrue(value.isBinary());
+        Assert.assertEquals(text, decode(codec, value));
+    }
+
+    @Test
+    public void testUserDefinedBinaryDecodedAsIs() {
+        // Starts with magic of previous single byte header.
+        byte[] data = {'Z', 1, 1, 0, 0, 0, 0x7F, 1, 2, 3};
+
+        CompressedCodec<byte[]> codec = new CompressedCodec<>(byte[].class, 16, new DeflateCompressor());
+        Assert.assertArrayEquals(data, decode(codec, new BsonBinary(BsonBinarySubType.USER_DEFINED, data)));
+    }
+
+    @Test(expected = BSONException.class)
+    public void testInvalidUncompressedLength() {
+        CompressedCodec<byte[]> codec = new CompressedCodec<>(byte[].class, 16, new DeflateCompressor());
+        byte[] data = encode(codec, new byte[1000]).asBinary().getData();
+        // Length far beyond what the compressed data can hold.
+        data[9] = 0x7F;
+
+        decode(codec, new BsonBinary(BsonBinarySubType.USER_DEFINED, data));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() {
+        new CompressedCodec<>(Integer.class, 16, new DeflateCompressor());
+    }
+}
@@ -0,0 +1,73 @@
+package eu.dozd.mongo.codecs.time;
+
+import org.bson.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.*;
+
+public class JavaTimeCodecProviderTest {
+
+    private static final Instant INSTANT = Instant.parse("2017-03-26T01:30:00.123Z");
+
+    private <T> BsonValue encode(CodecRegistry registry, T value) {
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        writer.writeName("v");
+        ((Codec<T>) registry.get(value.getClass())).encode(writer, value, EncoderContext.builder().build());
+        writer.writeEndDocument();
+        return document.get("v");
+    }
+
+    private <T> T decode(CodecRegistry registry, Class<T> clazz, BsonValue value) {
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", value));
+        reader.readStartDocument();
+        reader.readName();
+        return registry.get(clazz).decode(reader, DecoderContext.builder().build());
+    }
+
+    @Test
+    public void testUtc() {
+        CodecRegistry registry = CodecRegistries.fromProviders(new JavaTimeCodecProvider());
+        BsonDateTime date = new BsonDateTime(INSTANT.toEpochMilli());
+
+        Assert.assertEquals(date, encode(registry, INSTANT));
+        Assert.assertEquals(date, encode(registry, LocalDateTime.of(2017, 3, 26, 1, 30, 0, 123_000_000)));
+        Assert.assertEquals(date, encode(registry, OffsetDateTime.of(2017, 3, 26, 3, 30, 0, 123_000_000, ZoneOffset.ofHours(2))));
+        Assert.assertEquals(new BsonDateTime(Instant.parse("2017-03-26T00:00:00Z").toEpochMilli()), encode(registry, LocalDate.of(2017, 3, 26)));
+
+        Assert.assertEquals(INSTANT, decode(registry, Instant.class, date));
+        Assert.assertEquals(LocalDateTime.of(2017, 3, 26, 1, 30, 0, 123_000_000), decode(registry, LocalDateTime.class, date));
+        Assert.assertEquals(LocalDate.of(2017, 3, 26), decode(registry, LocalDate.class, date));
+        Assert.assertEquals(INSTANT.atOffset(ZoneOffset.UTC), decode(registry, OffsetDateTime.class, date));
+
+        Assert.assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000), decode(registry, LocalDateTime.class, new BsonDateTime(-1)));
+    }
+
+    @Test
+    public void testZone() {
+        ZoneId prague = ZoneId.of("Europe/Prague");
+        CodecRegistry registry = CodecRegistries.fromProviders(new JavaTimeCodecProvider(prague));
+
+        // Summer time starts at 2:00 local time on this day.
+        LocalDateTime local = LocalDateTime.of(2017, 3, 26, 3, 30, 0, 123_000_000);
+        Assert.assertEquals(new BsonDateTime(INSTANT.toEpochMilli()), encode(registry, local));
+        Assert.assertEquals(local, decode(registry, LocalDateTime.class, new BsonDateTime(INSTANT.toEpochMilli())));
+        Assert.assertEquals(INSTANT.atZone(prague).toOffsetDateTime(), decode(registry, OffsetDateTime.class, new BsonDateTime(INSTANT.toEpochMilli())));
+    }
+
+    @Test
+    public void testLegacyValues() {
+        CodecRegistry registry = CodecRegistries.fromProviders(new JavaTimeCodecProvider());
+
+        Assert.assertEquals(Instant.ofEpochSecond(1490491800), decode(registry, Instant.class, new BsonTimestamp(1490491800, 1)));
+        Assert.assertEquals(INSTANT, decode(registry, Instant.class, new BsonString("2017-03-26T01:30:00.123Z")));
+        Assert.assertEquals(LocalDate.of(2017, 3, 26), decode(registry, LocalDate.class, new BsonString("2017-03-26")));
+    }
+}
@@ -0,0 +1,16 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Embedded;
+
+@Embedded
+public abstract class TestEntityAnimal {
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,29 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.nio.ByteBuffer;
+
+@Entity
+public class TestEntityByteBuffer {
+    @Id
+    private String id;
+    private ByteBuffer data;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public void setData(ByteBuffer data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,16 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Embedded;
+
+@Embedded
+public class TestEntityCat extends TestEntityAnimal {
+    private int lives;
+
+    public int getLives() {
+        return lives;
+    }
+
+    public void setLives(int lives) {
+        this.lives = lives;
+    }
+}
@@ -0,0 +1,39 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Compressed;
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+@Entity
+public class TestEntityCompressed {
+    @Id
+    private String id;
+    @Compressed(threshold = 64)
+    private String text;
+    @Compressed
+    private byte[] payload;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,41 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Deduplicated;
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.util.List;
+
+@Entity
+public class TestEntityDeduplicated {
+    @Id
+    private String id;
+    @Deduplicated
+    private String country;
+    @Deduplicated("tags")
+    private List<String> tags;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+}
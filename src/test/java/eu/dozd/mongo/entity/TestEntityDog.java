@@ -0,0 +1,18 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Discriminator;
+import eu.dozd.mongo.annotation.Embedded;
+
+@Embedded
+@Discriminator("dog")
+public class TestEntityDog extends TestEntityAnimal {
+    private boolean goodBoy;
+
+    public boolean isGoodBoy() {
+        return goodBoy;
+    }
+
+    public void setGoodBoy(boolean goodBoy) {
+        this.goodBoy = goodBoy;
+    }
+}
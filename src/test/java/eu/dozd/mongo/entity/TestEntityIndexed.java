@@ -0,0 +1,71 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+
+@Entity
+@CompoundIndex(value = {"lastName", "-age"}, unique = true, name = "name_age")
+@CompoundIndex(value = {"lastName"}, partialFilter = "{\"age\": {\"$gte\": 18}}")
+@CompoundIndex(value = {"email", "created"}, partialFilter = "{\"$and\": [{\"age\": {\"$gt\": 0}}, {\"addresses.city\": {\"$exists\": true}}]}")
+public class TestEntityIndexed {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private String email;
+    @Indexed(expireAfterSeconds = 3600)
+    private Date created;
+    private String lastName;
+    @Property("a")
+    private int age;
+    private List<TestEntityIndexedAddress> addresses;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public List<TestEntityIndexedAddress> getAddresses() {
+        return addresses;
+    }
+
+    public void setAddresses(List<TestEntityIndexedAddress> addresses) {
+        this.addresses = addresses;
+    }
+}
@@ -0,0 +1,20 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Embedded;
+import eu.dozd.mongo.annotation.Indexed;
+import eu.dozd.mongo.annotation.Property;
+
+@Embedded
+public class TestEntityIndexedAddress {
+    @Indexed(descending = true, sparse = true)
+    @Property("c")
+    private String city;
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+}
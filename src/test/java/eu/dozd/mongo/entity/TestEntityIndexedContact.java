@@ -0,0 +1,10 @@
+package eu.dozd.mongo.entity;
+
+public interface TestEntityIndexedContact {
+    String getEmail();
+
+    default String getDomain() {
+        String email = getEmail();
+        return email != null ? email.substring(email.indexOf('@') + 1) : null;
+    }
+}
@@ -0,0 +1,25 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Projection;
+
+@Projection(TestEntityIndexed.class)
+public class TestEntityIndexedSummary {
+    private String lastName;
+    private int age;
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+}
@@ -0,0 +1,19 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Projection;
+import eu.dozd.mongo.annotation.Property;
+import org.bson.types.ObjectId;
+
+@Projection(TestEntityIndexed.class)
+public interface TestEntityIndexedView extends TestEntityIndexedContact {
+    @Property("_id")
+    ObjectId getId();
+
+    int getAge();
+
+    TestEntityIndexedAddress getAddress();
+
+    default String getLabel() {
+        return getEmail() + " (" + getAge() + ")";
+    }
+}
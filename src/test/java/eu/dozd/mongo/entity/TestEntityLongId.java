@@ -0,0 +1,40 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.GeneratedId;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.id.HiLoIdGenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Entity
+public class TestEntityLongId {
+    @Id
+    @GeneratedId(SequenceGenerator.class)
+    private Long id;
+    private String name;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public static class SequenceGenerator extends HiLoIdGenerator {
+        private static final AtomicLong HI = new AtomicLong(1);
+
+        public SequenceGenerator() {
+            super(100, HI::getAndIncrement);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.util.*;
+
+@Entity
+public class TestEntityNested {
+    @Id
+    private String id;
+    private List<List<Integer>> matrix;
+    private Map<String, List<TestEntityEmbedded>> groups;
+    private Set<TestEntityEnum.Type> types;
+    private SortedSet<String> tags;
+    private Deque<Long> queue;
+    private int[] numbers;
+    private TestEntityEmbedded[] embeddedArray;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<List<Integer>> getMatrix() {
+        return matrix;
+    }
+
+    public void setMatrix(List<List<Integer>> matrix) {
+        this.matrix = matrix;
+    }
+
+    public Map<String, List<TestEntityEmbedded>> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, List<TestEntityEmbedded>> groups) {
+        this.groups = groups;
+    }
+
+    public Set<TestEntityEnum.Type> getTypes() {
+        return types;
+    }
+
+    public void setTypes(Set<TestEntityEnum.Type> types) {
+        this.types = types;
+    }
+
+    public SortedSet<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(SortedSet<String> tags) {
+        this.tags = tags;
+    }
+
+    public Deque<Long> getQueue() {
+        return queue;
+    }
+
+    public void setQueue(Deque<Long> queue) {
+        this.queue = queue;
+    }
+
+    public int[] getNumbers() {
+        return numbers;
+    }
+
+    public void setNumbers(int[] numbers) {
+        this.numbers = numbers;
+    }
+
+    public TestEntityEmbedded[] getEmbeddedArray() {
+        return embeddedArray;
+    }
+
+    public void setEmbeddedArray(TestEntityEmbedded[] embeddedArray) {
+        this.embeddedArray = embeddedArray;
+    }
+}
@@ -0,0 +1,39 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import org.bson.RawBsonDocument;
+
+import java.util.List;
+
+@Entity
+public class TestEntityRaw {
+    @Id
+    private String id;
+    private RawBsonDocument payload;
+    private List<RawBsonDocument> payloads;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public RawBsonDocument getPayload() {
+        return payload;
+    }
+
+    public void setPayload(RawBsonDocument payload) {
+        this.payload = payload;
+    }
+
+    public List<RawBsonDocument> getPayloads() {
+        return payloads;
+    }
+
+    public void setPayloads(List<RawBsonDocument> payloads) {
+        this.payloads = payloads;
+    }
+}
@@ -0,0 +1,49 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.Property;
+import eu.dozd.mongo.annotation.ShardKey;
+import org.bson.types.ObjectId;
+
+@Entity
+public class TestEntitySharded {
+    @Id
+    private ObjectId id;
+    @ShardKey
+    @Property("r")
+    private String region;
+    private String name;
+
+    public TestEntitySharded() {
+    }
+
+    public TestEntitySharded(String region, String name) {
+        this.region = region;
+        this.name = name;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,36 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.ShardKey;
+
+@Entity
+public class TestEntityShardedStringId {
+    @Id
+    private String id;
+    @ShardKey
+    private String region;
+
+    public TestEntityShardedStringId() {
+    }
+
+    public TestEntityShardedStringId(String region) {
+        this.region = region;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+}
@@ -0,0 +1,51 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.Property;
+
+import java.util.List;
+
+@Entity
+public class TestEntityShortNames {
+    @Id
+    private String id;
+    @Property("n")
+    private String name;
+    private TestEntityShortNamesChild child;
+    private List<TestEntityShortNamesChild> children;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Property("c")
+    public TestEntityShortNamesChild getChild() {
+        return child;
+    }
+
+    public void setChild(TestEntityShortNamesChild child) {
+        this.child = child;
+    }
+
+    @Property("cs")
+    public List<TestEntityShortNamesChild> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<TestEntityShortNamesChild> children) {
+        this.children = children;
+    }
+}
@@ -0,0 +1,18 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Embedded;
+import eu.dozd.mongo.annotation.Property;
+
+@Embedded
+public class TestEntityShortNamesChild {
+    @Property("v")
+    private int value;
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+}
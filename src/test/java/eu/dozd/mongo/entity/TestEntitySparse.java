@@ -0,0 +1,87 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.Sparse;
+
+import java.util.Map;
+import java.util.SortedSet;
+
+@Entity
+@Sparse
+public class TestEntitySparse {
+    @Id
+    private String id;
+    private String name;
+    private int priority = 5;
+    private boolean active;
+    private SortedSet<String> tags;
+    private Map<String, Integer> counts;
+    private int[] values;
+    @Sparse(false)
+    private String note;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public SortedSet<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(SortedSet<String> tags) {
+        this.tags = tags;
+    }
+
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<String, Integer> counts) {
+        this.counts = counts;
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    public void setValues(int[] values) {
+        this.values = values;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+}
@@ -0,0 +1,38 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.util.Set;
+
+@Entity
+public class TestEntityTagged {
+    @Id
+    private String id;
+    private Set<String> tags;
+    private Set<TestEntityShortNamesChild> children;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public Set<TestEntityShortNamesChild> getChildren() {
+        return children;
+    }
+
+    public void setChildren(Set<TestEntityShortNamesChild> children) {
+        this.children = children;
+    }
+}
@@ -0,0 +1,60 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Entity
+public class TestEntityTime {
+    @Id
+    private String id;
+    private Instant created;
+    private List<LocalDate> days;
+    private LocalDateTime updated;
+    private OffsetDateTime published;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    public void setCreated(Instant created) {
+        this.created = created;
+    }
+
+    public List<LocalDate> getDays() {
+        return days;
+    }
+
+    public void setDays(List<LocalDate> days) {
+        this.days = days;
+    }
+
+    public LocalDateTime getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(LocalDateTime updated) {
+        this.updated = updated;
+    }
+
+    public OffsetDateTime getPublished() {
+        return published;
+    }
+
+    public void setPublished(OffsetDateTime published) {
+        this.published = published;
+    }
+}
@@ -0,0 +1,59 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import org.bson.types.ObjectId;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Entity
+public class TestEntityTypedMap {
+    @Id
+    private String id;
+    private LinkedHashMap<Long, String> ordered;
+    private TreeMap<String, Integer> sorted;
+    private Map<ObjectId, TestEntityEmbedded> byId;
+    private Map<TestEntityEnum.Type, TestEntityEnum.Type> enums;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LinkedHashMap<Long, String> getOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(LinkedHashMap<Long, String> ordered) {
+        this.ordered = ordered;
+    }
+
+    public TreeMap<String, Integer> getSorted() {
+        return sorted;
+    }
+
+    public void setSorted(TreeMap<String, Integer> sorted) {
+        this.sorted = sorted;
+    }
+
+    public Map<ObjectId, TestEntityEmbedded> getById() {
+        return byId;
+    }
+
+    public void setById(Map<ObjectId, TestEntityEmbedded> byId) {
+        this.byId = byId;
+    }
+
+    public Map<TestEntityEnum.Type, TestEntityEnum.Type> getEnums() {
+        return enums;
+    }
+
+    public void setEnums(Map<TestEntityEnum.Type, TestEntityEnum.Type> enums) {
+        this.enums = enums;
+    }
+}
@@ -0,0 +1,41 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+import eu.dozd.mongo.annotation.Property;
+import eu.dozd.mongo.annotation.Version;
+import org.bson.types.ObjectId;
+
+@Entity
+public class TestEntityVersioned {
+    @Id
+    private ObjectId id;
+    @Version
+    @Property("v")
+    private Long version;
+    private String name;
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
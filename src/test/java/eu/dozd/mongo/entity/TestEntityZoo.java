@@ -0,0 +1,38 @@
+package eu.dozd.mongo.entity;
+
+import eu.dozd.mongo.annotation.Entity;
+import eu.dozd.mongo.annotation.Id;
+
+import java.util.List;
+
+@Entity
+public class TestEntityZoo {
+    @Id
+    private String id;
+    private TestEntityAnimal favourite;
+    private List<TestEntityAnimal> animals;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public TestEntityAnimal getFavourite() {
+        return favourite;
+    }
+
+    public void setFavourite(TestEntityAnimal favourite) {
+        this.favourite = favourite;
+    }
+
+    public List<TestEntityAnimal> getAnimals() {
+        return animals;
+    }
+
+    public void setAnimals(List<TestEntityAnimal> animals) {
+        this.animals = animals;
+    }
+}
@@ -0,0 +1,102 @@
+package eu.dozd.mongo.id;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HiLoIdGeneratorTest {
+
+    @Test
+    public void testSequence() {
+        AtomicLong hi = new AtomicLong(5);
+        HiLoIdGenerator generator = new HiLoIdGenerator(10, hi::getAndIncrement);
+
+        Assert.assertEquals(Long.valueOf(51), generator.generate());
+        for (int i = 0; i < 9; i++) {
+            generator.generate();
+        }
+        Assert.assertEquals(Long.valueOf(61), generator.generate());
+        Assert.assertEquals(7, hi.get());
+    }
+
+    @Test
+    public void testNoZeroId() {
+        HiLoIdGenerator generator = new HiLoIdGenerator(10, () -> 0);
+        Assert.assertEquals(Long.valueOf(1), generator.generate());
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        AtomicLong hi = new AtomicLong();
+        final HiLoIdGenerator generator = new HiLoIdGenerator(64, hi::getAndIncrement);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < 10000; i++) {
+                    ids.add(generator.generate());
+                }
+                return ids;
+            }));
+        }
+
+        Set<Long> all = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            all.addAll(future.get());
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(40000, all.size());
+    }
+
+    @Test
+    public void testSingleRefill() throws Exception {
+        AtomicLong hi = new AtomicLong();
+        CountDownLatch allocating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        final HiLoIdGenerator generator = new HiLoIdGenerator(1000, () -> {
+            allocating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return hi.getAndIncrement();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(generator::generate));
+        }
+        allocating.await();
+        Thread.sleep(50);
+        release.countDown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<Long> future : futures) {
+            ids.add(future.get());
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(4, ids.size());
+        Assert.assertEquals(1, hi.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHiOverflow() {
+        new HiLoIdGenerator(10, () -> Long.MAX_VALUE / 5).generate();
+    }
+
+    @Test
+    public void testUuid() {
+        UUID uuid = new UuidIdGenerator().generate();
+        Assert.assertEquals(4, uuid.version());
+        Assert.assertEquals(2, uuid.variant());
+    }
+}
@@ -0,0 +1,112 @@
+package eu.dozd.mongo.spring;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import eu.dozd.mongo.entity.TestEntityDog;
+import eu.dozd.mongo.entity.TestEntityShortNames;
+import eu.dozd.mongo.entity.TestEntityShortNamesChild;
+import eu.dozd.mongo.entity.TestEntityUuid;
+import eu.dozd.mongo.entity.TestEntityZoo;
+import org.bson.BsonBinarySubType;
+import org.bson.types.Binary;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.util.ClassTypeInformation;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+public class MapperMongoConverterTest {
+
+    private DbRefResolver dbRefResolver;
+    private MapperMongoConverter converter;
+
+    @Before
+    public void setUp() throws Exception {
+        dbRefResolver = (DbRefResolver) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DbRefResolver.class}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException();
+        });
+        converter = new MapperMongoConverter(dbRefResolver, new MongoMappingContext());
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        TestEntityShortNames entity = new TestEntityShortNames();
+        entity.setName("name");
+        TestEntityShortNamesChild child = new TestEntityShortNamesChild();
+        child.setValue(3);
+        entity.setChild(child);
+        entity.setChildren(Collections.singletonList(child));
+
+        DBObject dbo = new BasicDBObject();
+        converter.write(entity, dbo);
+
+        Assert.assertEquals("name", dbo.get("n"));
+        Assert.assertEquals(3, ((DBObject) dbo.get("c")).get("v"));
+        Assert.assertFalse(dbo.containsField("_class"));
+        // Id is generated on write.
+        Assert.assertNotNull(entity.getId());
+        Assert.assertEquals(entity.getId(), dbo.get("_id").toString());
+
+        TestEntityShortNames read = converter.read(TestEntityShortNames.class, dbo);
+        Assert.assertEquals(entity.getId(), read.getId());
+        Assert.assertEquals("name", read.getName());
+        Assert.assertEquals(3, read.getChild().getValue());
+        Assert.assertEquals(3, read.getChildren().get(0).getValue());
+    }
+
+    @Test
+    public void testPolymorphic() {
+        TestEntityZoo zoo = new TestEntityZoo();
+        zoo.setFavourite(new TestEntityDog());
+
+        DBObject dbo = new BasicDBObject();
+        converter.write(zoo, dbo);
+
+        TestEntityZoo read = converter.read(TestEntityZoo.class, dbo);
+        Assert.assertTrue(read.getFavourite() instanceof TestEntityDog);
+    }
+
+    @Test
+    public void testConvertToMongoType() {
+        TestEntityShortNamesChild child = new TestEntityShortNamesChild();
+        child.setValue(5);
+
+        Object converted = converter.convertToMongoType(child, ClassTypeInformation.from(TestEntityShortNamesChild.class));
+        Assert.assertEquals(5, ((DBObject) converted).get("v"));
+        Assert.assertEquals("value", converter.convertToMongoType("value", null));
+    }
+
+    @Test
+    public void testUuidId() {
+        TestEntityUuid entity = new TestEntityUuid();
+        DBObject dbo = new BasicDBObject();
+        converter.write(entity, dbo);
+
+        // Stored as binary subtype 4, not converted to legacy UUID by the driver.
+        Assert.assertEquals(BsonBinarySubType.UUID_STANDARD.getValue(), ((Binary) dbo.get("_id")).getType());
+        Assert.assertEquals(entity.getId(), converter.read(TestEntityUuid.class, dbo).getId());
+
+        // Driver decodes the binary to UUID.
+        dbo.put("_id", entity.getId());
+        Assert.assertEquals(entity.getId(), converter.read(TestEntityUuid.class, dbo).getId());
+    }
+
+    @Test
+    public void testRegistryWithoutMapper() {
+        MapperMongoConverter plain = new MapperMongoConverter(dbRefResolver, new MongoMappingContext(), MongoClient.getDefaultCodecRegistry());
+        Assert.assertTrue(converter.isMapped(TestEntityShortNamesChild.class));
+        Assert.assertFalse(plain.isMapped(TestEntityShortNamesChild.class));
+        Assert.assertFalse(converter.isMapped(BasicDBObject.class));
+    }
+
+    @Test
+    public void testNotMapped() {
+        DBObject dbo = new BasicDBObject("a", 1);
+        Assert.assertEquals(1, converter.read(BasicDBObject.class, dbo).get("a"));
+    }
+}